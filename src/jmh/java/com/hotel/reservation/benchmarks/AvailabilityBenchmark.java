@@ -0,0 +1,89 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.DateScalar;
+import com.hotel.reservation.GraphQLDataFetchers;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.AvailabilityService;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * {@code availabilityFromTo} over 10k rooms where every room holds a few stays in the next two months.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AvailabilityBenchmark {
+
+    private static final int ROOMS = 10_000;
+    private static final int RESERVATIONS_PER_ROOM = 3;
+
+    private ConfigurableApplicationContext context;
+    private DataFetcher availabilityFromTo;
+    private DataFetcher availabilityCountFromTo;
+    private DataFetchingEnvironment environment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("availability");
+        final RoomRepository roomRepository = context.getBean(RoomRepository.class);
+        final ReservationRepository reservationRepository = context.getBean(ReservationRepository.class);
+        final User user = context.getBean(UserRepository.class).save(User.builder().login("bench").role(USER).build());
+
+        final Random random = new Random(42);
+        final Instant today = Instant.now();
+        final List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < ROOMS; i++) {
+            rooms.add(Room.builder().build());
+        }
+        roomRepository.saveAll(rooms);
+        final List<Reservation> reservations = new ArrayList<>();
+        for (Room room : rooms) {
+            for (int i = 0; i < RESERVATIONS_PER_ROOM; i++) {
+                final Instant startDate = today.plus(random.nextInt(60), DAYS);
+                reservations.add(Reservation.builder().room(room).user(user)
+                        .startDate(startDate).endDate(startDate.plus(1 + random.nextInt(3), DAYS)).build());
+            }
+        }
+        reservationRepository.saveAll(reservations);
+
+        final GraphQLDataFetchers dataFetchers = context.getBean(GraphQLDataFetchers.class);
+        availabilityFromTo = dataFetchers.availabilityFromTo();
+        availabilityCountFromTo = dataFetchers.availabilityCountFromTo();
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("fromDate", DateScalar.parse("2030-01-01 00:00:00"));
+        arguments.put("toDate", DateScalar.parse("2030-01-03 00:00:00"));
+        arguments.put("limit", AvailabilityService.MAX_AVAILABILITY_LIMIT);
+        environment = DataFetchingEnvironmentImpl.newDataFetchingEnvironment().arguments(arguments).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object availabilityFromTo() throws Exception {
+        return availabilityFromTo.get(environment);
+    }
+
+    @Benchmark
+    public Object availabilityCountFromTo() throws Exception {
+        return availabilityCountFromTo.get(environment);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.HotelReservation;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application against an in-memory H2 database so benchmarks run without MySQL.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(final String databaseName) {
+        return start(databaseName, WebApplicationType.NONE);
+    }
+
+    static ConfigurableApplicationContext start(final String databaseName, final WebApplicationType webApplicationType,
+                                                final String... properties) {
+        return new SpringApplicationBuilder(HotelReservation.class)
+                .web(webApplicationType)
+                .properties(properties)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1;MODE=MySQL",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+                        "logging.level.root=WARN")
+                .run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.HotelService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * Concurrent {@code reserveRoom} calls over random rooms and dates, collisions are counted as completed operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BookingThroughputBenchmark {
+
+    private static final int ROOMS = 1_000;
+    private static final int BOOKING_HORIZON_DAYS = 3_650;
+    private static final String LOGIN = "bench";
+
+    private ConfigurableApplicationContext context;
+    private HotelService hotelService;
+    private int[] roomIds;
+    private Instant tomorrow;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("booking");
+        context.getBean(UserRepository.class).save(User.builder().login(LOGIN).role(USER).build());
+        final RoomRepository roomRepository = context.getBean(RoomRepository.class);
+        roomIds = new int[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds[i] = roomRepository.save(Room.builder().build()).getId();
+        }
+        hotelService = context.getBean(HotelService.class);
+        tomorrow = Instant.now().plus(1, DAYS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void reserveRoom1Thread(final Blackhole blackhole) {
+        reserveRandomRoom(blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void reserveRoom4Threads(final Blackhole blackhole) {
+        reserveRandomRoom(blackhole);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void reserveRoom16Threads(final Blackhole blackhole) {
+        reserveRandomRoom(blackhole);
+    }
+
+    private void reserveRandomRoom(final Blackhole blackhole) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Instant startDate = tomorrow.plus(random.nextInt(BOOKING_HORIZON_DAYS), DAYS);
+        try {
+            hotelService.reserveRoom(LOGIN, roomIds[random.nextInt(ROOMS)], startDate, startDate.plus(1, DAYS));
+            blackhole.consume(true);
+        } catch (ReservationException e) {
+            blackhole.consume(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collision check of one room holding {@code reservationsPerRoom} one day stays separated by one free day.
+ * {@link #linearScan()} replays the list walk the service used before the interval index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollisionCheckBenchmark {
+
+    private static final int ROOM_ID = 1;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final int PROBES = 1024;
+
+    @Param({"10", "1000", "100000"})
+    int reservationsPerRoom;
+
+    private ReservationIntervalIndex index;
+    private List<Reservation> reservations;
+    private long[] probeStarts;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Room room = Room.builder().id(ROOM_ID).build();
+        index = new ReservationIntervalIndex(null);
+        reservations = new ArrayList<>(reservationsPerRoom);
+        for (int i = 0; i < reservationsPerRoom; i++) {
+            final Reservation reservation = Reservation.builder()
+                    .id(i)
+                    .room(room)
+                    .startDate(Instant.ofEpochMilli(2 * i * DAY))
+                    .endDate(Instant.ofEpochMilli((2 * i + 1) * DAY))
+                    .build();
+            index.add(reservation);
+            reservations.add(reservation);
+        }
+        final Random random = new Random(42);
+        probeStarts = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeStarts[i] = random.nextInt(2 * reservationsPerRoom) * DAY;
+        }
+    }
+
+    @Benchmark
+    public Optional<Integer> intervalIndex() {
+        final long start = nextProbe();
+        return index.findCollision(ROOM_ID, start, start + DAY);
+    }
+
+    @Benchmark
+    public Optional<Reservation> linearScan() {
+        final long start = nextProbe();
+        final Instant startDate = Instant.ofEpochMilli(start);
+        final Instant endDate = Instant.ofEpochMilli(start + DAY);
+        return reservations.stream().filter(reservation ->
+                reservation.getStartDate().equals(startDate) ||
+                reservation.getEndDate().equals(endDate) ||
+                reservation.getStartDate().isAfter(startDate) && reservation.getStartDate().isBefore(endDate) ||
+                reservation.getStartDate().isBefore(startDate) && reservation.getEndDate().isAfter(startDate) ||
+                reservation.getStartDate().isBefore(startDate) && reservation.getEndDate().isAfter(endDate) ||
+                reservation.getStartDate().isAfter(startDate) && reservation.getEndDate().isBefore(endDate))
+                .findAny();
+    }
+
+    private long nextProbe() {
+        probe = (probe + 1) & (PROBES - 1);
+        return probeStarts[probe];
+    }
+}
@@ -0,0 +1,85 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.hotel.reservation.Role.USER;
+
+/**
+ * 2,000 concurrent clients posting {@code roomIdAndLogin} queries to the embedded Tomcat, once per execution mode.
+ * Each query does the independent room and user lookups that the async mode runs concurrently. Compare the
+ * {@code p0.99} lines of the sample time results of both {@code async} values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(2_000)
+public class ExecutionModeLoadBenchmark {
+
+    private static final int ROOMS = 1_000;
+    private static final String LOGIN = "bench";
+
+    @Param({"false", "true"})
+    boolean async;
+
+    private ConfigurableApplicationContext context;
+    private URL graphqlUrl;
+    private int[] roomIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start("load", WebApplicationType.SERVLET,
+                "server.port=0",
+                "hotel.execution.async=" + async);
+        context.getBean(UserRepository.class).save(User.builder().login(LOGIN).role(USER).build());
+        final RoomRepository roomRepository = context.getBean(RoomRepository.class);
+        roomIds = new int[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds[i] = roomRepository.save(Room.builder().build()).getId();
+        }
+        final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        graphqlUrl = new URL("http://localhost:" + port + "/graphql");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int roomIdAndLogin() throws IOException {
+        final int roomId = roomIds[ThreadLocalRandom.current().nextInt(ROOMS)];
+        final byte[] body = ("{\"query\": \"{ roomIdAndLogin(id: " + roomId + ", login: \\\"" + LOGIN + "\\\") { id } }\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        final HttpURLConnection connection = (HttpURLConnection) graphqlUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body);
+        }
+        final int status = connection.getResponseCode();
+        try (InputStream input = connection.getInputStream()) {
+            final byte[] buffer = new byte[1024];
+            while (input.read(buffer) >= 0) {
+                // drain so the connection is reused
+            }
+        }
+        return status;
+    }
+}
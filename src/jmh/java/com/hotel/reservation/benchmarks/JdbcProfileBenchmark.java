@@ -0,0 +1,105 @@
+package com.hotel.reservation.benchmarks;
+
+import com.hotel.reservation.dto.ReservationRequest;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.HotelService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hotel.reservation.Role.ADMIN;
+import static java.time.temporal.ChronoUnit.DAYS;
+
+/**
+ * The {@code HotelService} write paths with the default settings and with the {@code perf} profile: single bookings
+ * (user lookup, room lock, insert), booking batches and bulk room inserts, which go out as JDBC batches. Bookings
+ * walk through the rooms one night at a time so none of them collides. The driver settings of the profile only take
+ * effect against MySQL, against H2 the difference is the pool sizing, async lookups and Hibernate batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JdbcProfileBenchmark {
+
+    private static final int ROOMS = 1_000;
+    private static final int BATCH_SIZE = 50;
+    private static final int BULK_ROOMS = 200;
+    private static final String LOGIN = "bench-admin";
+
+    @Param({"default", "perf"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+    private HotelService hotelService;
+    private int[] roomIds;
+    private Instant tomorrow;
+    private final AtomicLong nextBooking = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jdbc-" + profile, WebApplicationType.NONE,
+                "spring.profiles.active=" + ("perf".equals(profile) ? "perf" : "default"));
+        context.getBean(UserRepository.class).save(User.builder().login(LOGIN).role(ADMIN).build());
+        final RoomRepository roomRepository = context.getBean(RoomRepository.class);
+        roomIds = new int[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            roomIds[i] = roomRepository.save(Room.builder().build()).getId();
+        }
+        hotelService = context.getBean(HotelService.class);
+        tomorrow = Instant.now().plus(1, DAYS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void reserveRoom1Thread() {
+        reserveNextNight();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void reserveRoom16Threads() {
+        reserveNextNight();
+    }
+
+    @Benchmark
+    public void reserveRoomsBatch(final Blackhole blackhole) {
+        final List<ReservationRequest> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final long booking = nextBooking.getAndIncrement();
+            final Instant startDate = tomorrow.plus(booking / ROOMS, DAYS);
+            requests.add(ReservationRequest.builder()
+                    .roomId(roomIds[(int) (booking % ROOMS)])
+                    .login(LOGIN)
+                    .startDate(startDate)
+                    .endDate(startDate.plus(1, DAYS))
+                    .build());
+        }
+        blackhole.consume(hotelService.reserveRooms(LOGIN, requests));
+    }
+
+    @Benchmark
+    public void addRoomsBulk(final Blackhole blackhole) {
+        blackhole.consume(hotelService.addRooms(LOGIN, BULK_ROOMS));
+    }
+
+    private void reserveNextNight() {
+        final long booking = nextBooking.getAndIncrement();
+        final Instant startDate = tomorrow.plus(booking / ROOMS, DAYS);
+        hotelService.reserveRoom(LOGIN, roomIds[(int) (booking % ROOMS)], startDate, startDate.plus(1, DAYS));
+    }
+}
@@ -0,0 +1,5 @@
+package com.hotel.reservation;
+
+public enum Amenity {
+    WIFI, AIR_CONDITIONING, MINIBAR, BALCONY, SEA_VIEW, BATHTUB, ACCESSIBLE
+}
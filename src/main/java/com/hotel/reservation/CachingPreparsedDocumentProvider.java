@@ -0,0 +1,50 @@
+package com.hotel.reservation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated documents by query text so repeated queries skip parsing and validation.
+ * Documents that failed to parse or validate are not cached.
+ */
+public class CachingPreparsedDocumentProvider implements PreparsedDocumentProvider {
+
+    private final Cache<String, PreparsedDocumentEntry> documents;
+
+    public CachingPreparsedDocumentProvider(final long maximumSize) {
+        this.documents = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(final ExecutionInput executionInput,
+                                                                      final Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        final PreparsedDocumentEntry cached = documents.getIfPresent(executionInput.getQuery());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        final PreparsedDocumentEntry entry = parseAndValidateFunction.apply(executionInput);
+        if (!entry.hasErrors()) {
+            documents.put(executionInput.getQuery(), entry);
+        }
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    /**
+     * Still abstract in graphql-java 18, the engine only calls {@link #getDocumentAsync}.
+     */
+    @Override
+    @Deprecated
+    public PreparsedDocumentEntry getDocument(final ExecutionInput executionInput,
+                                              final Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return getDocumentAsync(executionInput, parseAndValidateFunction).join();
+    }
+}
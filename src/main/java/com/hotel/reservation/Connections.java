@@ -0,0 +1,74 @@
+package com.hotel.reservation;
+
+import graphql.relay.Connection;
+import graphql.relay.DefaultConnection;
+import graphql.relay.DefaultConnectionCursor;
+import graphql.relay.DefaultEdge;
+import graphql.relay.DefaultPageInfo;
+import graphql.relay.Edge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.hotel.reservation.services.AvailabilityService.MAX_AVAILABILITY_LIMIT;
+
+/**
+ * Relay connections over keyset pages. A cursor is the opaque form of the id of an edge's node, so fetching the
+ * page after it is an {@code id > :after} range scan instead of an offset that has to be skipped.
+ */
+public final class Connections {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final String PREFIX = "id:";
+
+    private Connections() {
+    }
+
+    public static int pageSize(final Integer first) {
+        if (first != null && first < 0) {
+            throw new IllegalArgumentException("first must not be negative");
+        }
+        return first == null ? DEFAULT_PAGE_SIZE : Math.min(first, MAX_AVAILABILITY_LIMIT);
+    }
+
+    /**
+     * @return the id after which the page starts, {@code Integer.MIN_VALUE} for the first page
+     */
+    public static int after(final String cursor) {
+        if (cursor == null) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            final String decoded = new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(PREFIX)) {
+                return Integer.parseInt(decoded.substring(PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(String.format("Invalid cursor %s", cursor));
+    }
+
+    public static String cursor(final int id) {
+        return Base64.getEncoder().encodeToString((PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param nodes up to {@code pageSize + 1} nodes in id order, the extra node only signals a next page
+     */
+    public static <T> Connection<T> of(final List<T> nodes, final int pageSize, final Function<T, Integer> id) {
+        final List<Edge<T>> edges = new ArrayList<>(Math.min(nodes.size(), pageSize));
+        for (T node : nodes.subList(0, Math.min(nodes.size(), pageSize))) {
+            edges.add(new DefaultEdge<>(node, new DefaultConnectionCursor(cursor(id.apply(node)))));
+        }
+        return new DefaultConnection<>(edges, new DefaultPageInfo(
+                edges.isEmpty() ? null : edges.get(0).getCursor(),
+                edges.isEmpty() ? null : edges.get(edges.size() - 1).getCursor(),
+                false,
+                nodes.size() > pageSize));
+    }
+}
@@ -0,0 +1,69 @@
+package com.hotel.reservation;
+
+import graphql.language.StringValue;
+import graphql.schema.Coercing;
+import graphql.schema.CoercingParseLiteralException;
+import graphql.schema.CoercingParseValueException;
+import graphql.schema.CoercingSerializeException;
+import graphql.schema.GraphQLScalarType;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The {@code yyyy-MM-dd HH:mm:ss} date format shared by the REST and GraphQL APIs. Dates are read in the
+ * system time zone. {@link DateTimeFormatter} is immutable, so the single {@link #FORMATTER} is used from all threads.
+ */
+public final class DateScalar {
+
+    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DATE_FORMAT).withZone(ZoneId.systemDefault());
+
+    public static final GraphQLScalarType DATE = GraphQLScalarType.newScalar()
+            .name("Date")
+            .description("Date and time formatted as " + DATE_FORMAT)
+            .coercing(new Coercing<Instant, String>() {
+                @Override
+                public String serialize(final Object dataFetcherResult) {
+                    if (dataFetcherResult instanceof Instant) {
+                        return format((Instant) dataFetcherResult);
+                    }
+                    throw new CoercingSerializeException("Expected an Instant but was " + dataFetcherResult);
+                }
+
+                @Override
+                public Instant parseValue(final Object input) {
+                    try {
+                        return parse(String.valueOf(input));
+                    } catch (DateTimeParseException e) {
+                        throw new CoercingParseValueException(e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public Instant parseLiteral(final Object input) {
+                    if (!(input instanceof StringValue)) {
+                        throw new CoercingParseLiteralException("Expected a string formatted as " + DATE_FORMAT);
+                    }
+                    try {
+                        return parse(((StringValue) input).getValue());
+                    } catch (DateTimeParseException e) {
+                        throw new CoercingParseLiteralException(e.getMessage(), e);
+                    }
+                }
+            })
+            .build();
+
+    private DateScalar() {
+    }
+
+    public static Instant parse(final String text) {
+        return FORMATTER.parse(text, Instant::from);
+    }
+
+    public static String format(final Instant instant) {
+        return FORMATTER.format(instant);
+    }
+}
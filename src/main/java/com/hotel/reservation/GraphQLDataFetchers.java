@@ -1,5 +1,7 @@
 package com.hotel.reservation;
 
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.exceptions.ReservationException;
 import com.hotel.reservation.exceptions.RoomNotFoundException;
 import com.hotel.reservation.exceptions.UserNotFoundException;
 import com.hotel.reservation.model.Reservation;
@@ -8,65 +10,225 @@ import com.hotel.reservation.model.User;
 import com.hotel.reservation.repository.ReservationRepository;
 import com.hotel.reservation.repository.RoomRepository;
 import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.AvailabilityCache;
+import com.hotel.reservation.services.AvailabilityService;
+import com.hotel.reservation.services.ExecutionMode;
+import com.hotel.reservation.services.HotelService;
+import com.hotel.reservation.shard.ShardRouter;
 import graphql.schema.DataFetcher;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import static com.hotel.reservation.services.AvailabilityService.MAX_AVAILABILITY_LIMIT;
 
 @Component
 @AllArgsConstructor
 public class GraphQLDataFetchers {
 
-    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
-
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
     private final ReservationRepository reservationRepository;
+    private final GraphQLDataLoaders graphQLDataLoaders;
+    private final AvailabilityService availabilityService;
+    private final AvailabilityCache availabilityCache;
+    private final ExecutionMode executionMode;
+    private final HotelService hotelService;
+    private final ShardRouter shardRouter;
 
     public DataFetcher getRoomByIdWithLogin() {
         return dataFetchingEnvironment -> {
             Integer roomId = dataFetchingEnvironment.getArgument("id");
             String login = dataFetchingEnvironment.getArgument("login");
-            final Room room = roomRepository.findById(roomId).orElseThrow(() -> new RoomNotFoundException(roomId));
-            final User user = userRepository.findByLogin(login).orElseThrow(() ->
-                    new UserNotFoundException(String.format("User with login %s not found", login)));
-
-            return room.getReservations().stream()
-                    .filter(reservation -> reservation.getUser().equals(user))
-                    .map(Reservation::getRoom)
-                    .collect(Collectors.toList());
+            final int shard = shardRouter.shardOf(roomId);
+            final CompletableFuture<Room> room = executionMode.supply(() -> shardRouter.on(shard, () ->
+                    roomRepository.findById(roomId).orElseThrow(() -> new RoomNotFoundException(roomId))));
+            final CompletableFuture<Long> reservations = executionMode.supply(() -> {
+                if (!userRepository.findRoleByLogin(login).isPresent()) {
+                    throw new UserNotFoundException(String.format("User with login %s not found", login));
+                }
+                return shardRouter.on(shard, () -> reservationRepository.countByRoomIdAndUserLogin(roomId, login));
+            });
+
+            return room.thenCombine(reservations, (found, count) -> Collections.nCopies(count.intValue(), found));
         };
     }
 
     public DataFetcher findUsers() {
         return dataFetchingEnvironment -> {
             String login = dataFetchingEnvironment.getArgument("login");
-            return userRepository.findByLogin(login).orElseThrow(() ->
-                    new UserNotFoundException(String.format("User with login %s not found", login)));
+            return executionMode.supply(() -> userRepository.findByLogin(login).orElseThrow(() ->
+                    new UserNotFoundException(String.format("User with login %s not found", login))));
         };
     }
 
     public DataFetcher availabilityFromTo() {
         return dataFetchingEnvironment -> {
+            final Instant fromDate = dataFetchingEnvironment.getArgument("fromDate");
+            final Instant toDate = dataFetchingEnvironment.getArgument("toDate");
+            final Integer page = dataFetchingEnvironment.getArgument("page");
+            final Integer limit = dataFetchingEnvironment.getArgument("limit");
+
+            return executionMode.supply(() -> availabilityCache.availableRooms(fromDate, toDate,
+                    page == null ? 0 : page, limit == null ? MAX_AVAILABILITY_LIMIT : limit));
+        };
+    }
+
+    public DataFetcher availabilityCountFromTo() {
+        return dataFetchingEnvironment -> {
+            final Instant fromDate = dataFetchingEnvironment.getArgument("fromDate");
+            final Instant toDate = dataFetchingEnvironment.getArgument("toDate");
+            return executionMode.supply(() -> availabilityCache.countAvailable(fromDate, toDate));
+        };
+    }
 
-            String fromDateString = dataFetchingEnvironment.getArgument("fromDate");
-            String toDateString = dataFetchingEnvironment.getArgument("toDate");
+    public DataFetcher occupancy() {
+        return dataFetchingEnvironment -> {
+            final Instant fromDate = dataFetchingEnvironment.getArgument("fromDate");
+            final Instant toDate = dataFetchingEnvironment.getArgument("toDate");
+            return executionMode.supply(() -> hotelService.occupancy(fromDate, toDate));
+        };
+    }
 
-            final SimpleDateFormat simpleFormat = new SimpleDateFormat(DATE_FORMAT);
-            // Find by startDate after provided toDate And endDate is before provided startDate
-            final Stream<Room> roomsWithReservationThatDoNotCollide =
-                    reservationRepository.findByStartDateAfterOrEndDateBefore(simpleFormat.parse(toDateString), simpleFormat.parse(fromDateString)).stream().map(Reservation::getRoom);
-            final Stream<Room> fullyAvailableRooms = roomRepository.findByReservationsIsEmpty().stream();
-            return Stream.concat(roomsWithReservationThatDoNotCollide, fullyAvailableRooms);
+    /**
+     * Subscription source, {@code after} is the offset of the last event the client processed.
+     */
+    public DataFetcher reservationEvents() {
+        return dataFetchingEnvironment -> {
+            final String after = dataFetchingEnvironment.getArgument("after");
+            try {
+                return hotelService.reservationEvents(after == null ? null : Long.valueOf(after));
+            } catch (NumberFormatException e) {
+                throw new ReservationException(String.format("Invalid offset %s", after));
+            }
+        };
+    }
 
+    public DataFetcher searchRooms() {
+        return dataFetchingEnvironment -> {
+            final Map<String, Object> filter = dataFetchingEnvironment.getArgument("filter");
+            final RoomSearch search = roomSearch(filter == null ? Collections.emptyMap() : filter);
+            search.setFromDate(dataFetchingEnvironment.getArgument("fromDate"));
+            search.setToDate(dataFetchingEnvironment.getArgument("toDate"));
+            final String priceOrder = dataFetchingEnvironment.getArgument("priceOrder");
+            final Integer page = dataFetchingEnvironment.getArgument("page");
+            final Integer limit = dataFetchingEnvironment.getArgument("limit");
+
+            return executionMode.supply(() -> hotelService.searchRooms(search,
+                    priceOrder == null ? null : Sort.Direction.valueOf(priceOrder),
+                    page == null ? 0 : page, limit == null ? MAX_AVAILABILITY_LIMIT : limit));
+        };
+    }
 
+    public DataFetcher availabilityConnection() {
+        return dataFetchingEnvironment -> {
+            final Instant fromDate = dataFetchingEnvironment.getArgument("fromDate");
+            final Instant toDate = dataFetchingEnvironment.getArgument("toDate");
+            final int first = Connections.pageSize(dataFetchingEnvironment.getArgument("first"));
+            final int after = Connections.after(dataFetchingEnvironment.getArgument("after"));
 
+            return executionMode.supply(() -> Connections.of(
+                    availabilityService.availableRoomsAfter(fromDate, toDate, after, first + 1), first, Room::getId));
         };
     }
 
+    public DataFetcher roomReservationsByLogin() {
+        return dataFetchingEnvironment -> {
+            final Integer roomId = dataFetchingEnvironment.getArgument("id");
+            final String login = dataFetchingEnvironment.getArgument("login");
+            final int first = Connections.pageSize(dataFetchingEnvironment.getArgument("first"));
+            final int after = Connections.after(dataFetchingEnvironment.getArgument("after"));
+
+            return executionMode.supply(() -> {
+                if (!userRepository.findRoleByLogin(login).isPresent()) {
+                    throw new UserNotFoundException(String.format("User with login %s not found", login));
+                }
+                return Connections.of(shardRouter.on(shardRouter.shardOf(roomId), () ->
+                        reservationRepository.findByRoomIdAndUserLoginAfter(roomId, login, after,
+                                PageRequest.of(0, first + 1))), first, Reservation::getId);
+            });
+        };
+    }
 
+    public DataFetcher userReservationsConnection() {
+        return dataFetchingEnvironment -> {
+            final User user = dataFetchingEnvironment.getSource();
+            final int first = Connections.pageSize(dataFetchingEnvironment.getArgument("first"));
+            final int after = Connections.after(dataFetchingEnvironment.getArgument("after"));
+
+            // shard id ranges are ascending, so the shard pages concatenate in id order
+            return executionMode.supply(() -> Connections.of(shardRouter.fanOut(shard ->
+                    reservationRepository.findByUserIdAfter(user.getId(), after, PageRequest.of(0, first + 1))).stream()
+                    .flatMap(List::stream)
+                    .limit(first + 1)
+                    .collect(Collectors.toList()), first, Reservation::getId));
+        };
+    }
+
+    public DataFetcher roomAmenities() {
+        return dataFetchingEnvironment -> {
+            final Room room = dataFetchingEnvironment.getSource();
+            return dataFetchingEnvironment.<Integer, List<Amenity>>getDataLoader(GraphQLDataLoaders.ROOM_AMENITIES)
+                    .load(room.getId());
+        };
+    }
+
+    public DataFetcher reservationRoom() {
+        return dataFetchingEnvironment -> {
+            final Reservation reservation = dataFetchingEnvironment.getSource();
+            return dataFetchingEnvironment.<Integer, Room>getDataLoader(GraphQLDataLoaders.ROOM)
+                    .load(graphQLDataLoaders.idOf(reservation.getRoom()));
+        };
+    }
+
+    public DataFetcher reservationUser() {
+        return dataFetchingEnvironment -> {
+            final Reservation reservation = dataFetchingEnvironment.getSource();
+            return dataFetchingEnvironment.<Integer, User>getDataLoader(GraphQLDataLoaders.USER)
+                    .load(graphQLDataLoaders.idOf(reservation.getUser()));
+        };
+    }
+
+    public DataFetcher roomReservations() {
+        return dataFetchingEnvironment -> {
+            final Room room = dataFetchingEnvironment.getSource();
+            return dataFetchingEnvironment.<Integer, List<Reservation>>getDataLoader(GraphQLDataLoaders.ROOM_RESERVATIONS)
+                    .load(room.getId());
+        };
+    }
+
+    public DataFetcher userReservations() {
+        return dataFetchingEnvironment -> {
+            final User user = dataFetchingEnvironment.getSource();
+            return dataFetchingEnvironment.<Integer, List<Reservation>>getDataLoader(GraphQLDataLoaders.USER_RESERVATIONS)
+                    .load(user.getId());
+        };
+    }
+
+    /**
+     * Enum arguments arrive as their names and Float arguments as doubles.
+     */
+    @SuppressWarnings("unchecked")
+    private static RoomSearch roomSearch(final Map<String, Object> filter) {
+        final String type = (String) filter.get("type");
+        final Double minPrice = (Double) filter.get("minPrice");
+        final Double maxPrice = (Double) filter.get("maxPrice");
+        final List<String> amenities = (List<String>) filter.get("amenities");
+        return RoomSearch.builder()
+                .type(type == null ? null : RoomType.valueOf(type))
+                .minCapacity((Integer) filter.get("minCapacity"))
+                .hotelId((Integer) filter.get("hotelId"))
+                .floor((Integer) filter.get("floor"))
+                .minPrice(minPrice == null ? null : BigDecimal.valueOf(minPrice))
+                .maxPrice(maxPrice == null ? null : BigDecimal.valueOf(maxPrice))
+                .amenities(amenities == null ? null : amenities.stream().map(Amenity::valueOf).collect(Collectors.toSet()))
+                .build();
+    }
 }
@@ -0,0 +1,109 @@
+package com.hotel.reservation;
+
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.replica.ReadContext;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomAmenity;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.ExecutionMode;
+import com.hotel.reservation.shard.ShardRouter;
+import lombok.AllArgsConstructor;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Batches nested field resolution so every level of a query costs one {@code IN} query,
+ * a fresh registry is created for each execution so nothing is cached across requests. Rooms and their reservations
+ * are loaded from the shards their ids belong to, a user's reservations from all shards. Loads read from a replica
+ * unless the request creating the registry reads its own writes.
+ */
+@Component
+@AllArgsConstructor
+public class GraphQLDataLoaders {
+
+    public static final String ROOM = "room";
+    public static final String USER = "user";
+    public static final String ROOM_RESERVATIONS = "roomReservations";
+    public static final String USER_RESERVATIONS = "userReservations";
+    public static final String ROOM_AMENITIES = "roomAmenities";
+
+    private final RoomRepository roomRepository;
+    private final UserRepository userRepository;
+    private final ReservationRepository reservationRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExecutionMode executionMode;
+    private final ShardRouter shardRouter;
+
+    public DataLoaderRegistry registry() {
+        final boolean replica = !ReadContext.readYourWrites();
+        final DataLoaderRegistry registry = new DataLoaderRegistry();
+        registry.register(ROOM, DataLoaderFactory.<Integer, Room>newMappedDataLoader(ids ->
+                load(replica, () -> onShards(ids, shardIds -> byId(roomRepository.findAllById(shardIds), Room::getId)))));
+        registry.register(USER, DataLoaderFactory.<Integer, User>newMappedDataLoader(ids ->
+                load(replica, () -> byId(userRepository.findAllById(ids), User::getId))));
+        registry.register(ROOM_RESERVATIONS, DataLoaderFactory.<Integer, List<Reservation>>newMappedDataLoader(ids ->
+                load(replica, () -> onShards(ids, shardIds ->
+                        groupBy(shardIds, reservationRepository.findByRoomIdIn(shardIds), Reservation::getRoom)))));
+        registry.register(USER_RESERVATIONS, DataLoaderFactory.<Integer, List<Reservation>>newMappedDataLoader(ids ->
+                load(replica, () -> groupBy(ids, allShards(() -> reservationRepository.findByUserIdIn(ids)), Reservation::getUser))));
+        registry.register(ROOM_AMENITIES, DataLoaderFactory.<Integer, List<Amenity>>newMappedDataLoader(ids ->
+                load(replica, () -> onShards(ids, shardIds -> amenities(shardIds, roomRepository.findAmenities(shardIds))))));
+        return registry;
+    }
+
+    private <T> CompletableFuture<Map<Integer, T>> load(final boolean replica, final Supplier<Map<Integer, T>> lookup) {
+        return executionMode.supply(() -> ReadContext.on(replica, lookup));
+    }
+
+    /**
+     * Reads the id of a possibly uninitialized proxy without loading it.
+     */
+    public Integer idOf(final Object entity) {
+        return (Integer) entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    private <T> Map<Integer, T> onShards(final Set<Integer> ids, final Function<Set<Integer>, Map<Integer, T>> load) {
+        final Map<Integer, T> loaded = new HashMap<>();
+        shardRouter.byShard(ids).forEach((shard, shardIds) ->
+                loaded.putAll(shardRouter.on(shard, () -> load.apply(new HashSet<>(shardIds)))));
+        return loaded;
+    }
+
+    private List<Reservation> allShards(final Supplier<List<Reservation>> load) {
+        final List<Reservation> loaded = new ArrayList<>();
+        shardRouter.fanOut(shard -> load.get()).forEach(loaded::addAll);
+        return loaded;
+    }
+
+    private static <T> Map<Integer, T> byId(final Iterable<T> entities, final Function<T, Integer> id) {
+        return StreamSupport.stream(entities.spliterator(), false)
+                .collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    private static Map<Integer, List<Amenity>> amenities(final Set<Integer> ids, final List<RoomAmenity> amenities) {
+        final Map<Integer, List<Amenity>> grouped = new HashMap<>();
+        ids.forEach(id -> grouped.put(id, new ArrayList<>()));
+        amenities.forEach(amenity -> grouped.get(amenity.getRoomId()).add(amenity.getAmenity()));
+        return grouped;
+    }
+
+    private Map<Integer, List<Reservation>> groupBy(final Set<Integer> ids, final List<Reservation> reservations,
+                                                    final Function<Reservation, Object> owner) {
+        final Map<Integer, List<Reservation>> grouped = new HashMap<>();
+        ids.forEach(id -> grouped.put(id, new ArrayList<>()));
+        reservations.forEach(reservation -> grouped.get(idOf(owner.apply(reservation))).add(reservation));
+        return grouped;
+    }
+}
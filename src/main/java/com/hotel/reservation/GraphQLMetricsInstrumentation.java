@@ -0,0 +1,56 @@
+package com.hotel.reservation;
+
+import com.hotel.reservation.services.HotelMetrics;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLTypeUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Times every non trivial data fetcher, asynchronous results are timed until their future completes.
+ */
+public class GraphQLMetricsInstrumentation extends SimpleInstrumentation {
+
+    private final MeterRegistry meterRegistry;
+
+    public GraphQLMetricsInstrumentation(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(final DataFetcher<?> dataFetcher, final InstrumentationFieldFetchParameters parameters) {
+        if (parameters.isTrivialDataFetcher()) {
+            return dataFetcher;
+        }
+        final String field = GraphQLTypeUtil.simplePrint(parameters.getEnvironment().getParentType()) + "." + parameters.getField().getName();
+        return environment -> {
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            final Object result;
+            try {
+                result = dataFetcher.get(environment);
+            } catch (Exception e) {
+                stop(sample, field, e);
+                throw e;
+            }
+            if (result instanceof CompletionStage) {
+                return ((CompletionStage<?>) result).whenComplete((value, error) -> stop(sample, field,
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+            }
+            stop(sample, field, null);
+            return result;
+        };
+    }
+
+    private void stop(final Timer.Sample sample, final String field, final Throwable error) {
+        sample.stop(Timer.builder("hotel.graphql.fetch")
+                .tag("field", field)
+                .tag("outcome", HotelMetrics.outcomeOf(error))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -3,27 +3,49 @@ package com.hotel.reservation;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import graphql.GraphQL;
+import graphql.analysis.FieldComplexityEnvironment;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.schema.GraphQLTypeUtil;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
 import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 
 import static graphql.schema.idl.TypeRuntimeWiring.newTypeWiring;
 
 @Component
 public class GraphQLProvider {
 
+    private static final int LIST_COMPLEXITY_FACTOR = 10;
+
     @Autowired
     GraphQLDataFetchers graphQLDataFetchers;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${hotel.graphql.max-depth:10}")
+    int maxDepth;
+
+    @Value("${hotel.graphql.max-complexity:1000}")
+    int maxComplexity;
+
+    @Value("${hotel.graphql.document-cache-size:500}")
+    long documentCacheSize;
+
     private GraphQL graphQL;
 
     @PostConstruct
@@ -31,7 +53,22 @@ public class GraphQLProvider {
         URL url = Resources.getResource("schema.graphqls");
         String sdl = Resources.toString(url, Charsets.UTF_8);
         GraphQLSchema graphQLSchema = buildSchema(sdl);
-        this.graphQL = GraphQL.newGraphQL(graphQLSchema).build();
+        this.graphQL = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new ChainedInstrumentation(Arrays.asList(
+                        new MaxQueryDepthInstrumentation(maxDepth),
+                        new MaxQueryComplexityInstrumentation(maxComplexity, GraphQLProvider::fieldComplexity),
+                        new GraphQLMetricsInstrumentation(meterRegistry),
+                        new ReadReplicaInstrumentation())))
+                .preparsedDocumentProvider(new CachingPreparsedDocumentProvider(documentCacheSize))
+                .build();
+    }
+
+    /**
+     * List fields multiply the cost of their selection, so nesting the cyclic Room/Reservation/User types grows quickly.
+     */
+    private static int fieldComplexity(final FieldComplexityEnvironment environment, final int childComplexity) {
+        final boolean list = GraphQLTypeUtil.isList(GraphQLTypeUtil.unwrapNonNull(environment.getFieldDefinition().getType()));
+        return 1 + (list ? childComplexity * LIST_COMPLEXITY_FACTOR : childComplexity);
     }
 
     private GraphQLSchema buildSchema(String sdl) {
@@ -43,10 +80,27 @@ public class GraphQLProvider {
 
     private RuntimeWiring buildWiring() {
         return RuntimeWiring.newRuntimeWiring()
+                .scalar(DateScalar.DATE)
                 .type(newTypeWiring("Query")
                         .dataFetcher("roomIdAndLogin", graphQLDataFetchers.getRoomByIdWithLogin())
                         .dataFetcher("findUser", graphQLDataFetchers.findUsers())
-                        .dataFetcher("availabilityFromTo", graphQLDataFetchers.availabilityFromTo()))
+                        .dataFetcher("availabilityFromTo", graphQLDataFetchers.availabilityFromTo())
+                        .dataFetcher("availabilityCountFromTo", graphQLDataFetchers.availabilityCountFromTo())
+                        .dataFetcher("searchRooms", graphQLDataFetchers.searchRooms())
+                        .dataFetcher("occupancy", graphQLDataFetchers.occupancy())
+                        .dataFetcher("availabilityConnection", graphQLDataFetchers.availabilityConnection())
+                        .dataFetcher("roomReservationsByLogin", graphQLDataFetchers.roomReservationsByLogin()))
+                .type(newTypeWiring("Subscription")
+                        .dataFetcher("reservationEvents", graphQLDataFetchers.reservationEvents()))
+                .type(newTypeWiring("Reservation")
+                        .dataFetcher("room", graphQLDataFetchers.reservationRoom())
+                        .dataFetcher("user", graphQLDataFetchers.reservationUser()))
+                .type(newTypeWiring("Room")
+                        .dataFetcher("reservations", graphQLDataFetchers.roomReservations())
+                        .dataFetcher("amenities", graphQLDataFetchers.roomAmenities()))
+                .type(newTypeWiring("User")
+                        .dataFetcher("reservations", graphQLDataFetchers.userReservations())
+                        .dataFetcher("reservationsConnection", graphQLDataFetchers.userReservationsConnection()))
                 .build();
     }
 
@@ -0,0 +1,30 @@
+package com.hotel.reservation;
+
+import com.hotel.reservation.replica.ReadContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+
+/**
+ * The schema only has queries, so every data fetcher reads from a replica unless the request asked to read its own
+ * writes. Lookups handed to {@link com.hotel.reservation.services.ExecutionMode} keep the binding on the pool.
+ */
+public class ReadReplicaInstrumentation extends SimpleInstrumentation {
+
+    public static final String READ_YOUR_WRITES = "readYourWrites";
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(final DataFetcher<?> dataFetcher, final InstrumentationFieldFetchParameters parameters) {
+        if (parameters.isTrivialDataFetcher()) {
+            return dataFetcher;
+        }
+        return environment -> {
+            final boolean previous = ReadContext.bind(!environment.getGraphQlContext().getOrDefault(READ_YOUR_WRITES, false));
+            try {
+                return dataFetcher.get(environment);
+            } finally {
+                ReadContext.restore(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,5 @@
+package com.hotel.reservation;
+
+public enum RoomType {
+    SINGLE, DOUBLE, TWIN, FAMILY, SUITE
+}
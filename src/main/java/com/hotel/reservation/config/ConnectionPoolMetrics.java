@@ -0,0 +1,67 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.replica.ReplicaRoutingDataSource;
+import com.hotel.reservation.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Publishes metrics of every Hikari pool behind the application's datasource, including the shard and replica pools
+ * hidden by the routing datasources, which Spring Boot's own pool metrics do not see. Each pool reports the
+ * {@code hikaricp.connections.*} meters, where {@code pending} counts threads waiting for a connection, and
+ * {@code hotel.db.pool.saturation}, the share of the maximum pool size in use, all tagged with the pool name.
+ */
+@Component
+@AllArgsConstructor
+public class ConnectionPoolMetrics implements MeterBinder {
+
+    private final DataSource dataSource;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        for (HikariDataSource pool : pools(dataSource)) {
+            if (pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            Gauge.builder("hotel.db.pool.saturation", pool, ConnectionPoolMetrics::saturation)
+                    .description("Share of the maximum pool size in use")
+                    .tag("pool", String.valueOf(pool.getPoolName()))
+                    .register(registry);
+        }
+    }
+
+    static List<HikariDataSource> pools(final DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            return Collections.singletonList((HikariDataSource) dataSource);
+        }
+        final List<DataSource> targets = dataSource instanceof ReplicaRoutingDataSource
+                ? ((ReplicaRoutingDataSource) dataSource).targets()
+                : dataSource instanceof ShardRoutingDataSource
+                ? ((ShardRoutingDataSource) dataSource).targets()
+                : Collections.emptyList();
+        final List<HikariDataSource> pools = new ArrayList<>();
+        for (DataSource target : targets) {
+            pools.addAll(pools(target));
+        }
+        return pools;
+    }
+
+    /**
+     * Zero until the pool has started, Hikari starts a pool on its first connection.
+     */
+    private static double saturation(final HikariDataSource pool) {
+        final HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        return bean == null ? 0 : (double) bean.getActiveConnections() / pool.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,27 @@
+package com.hotel.reservation.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Spring Boot only applies {@code spring.datasource.hikari.*} to the datasource it creates itself. The shard and
+ * replica pools are built here, so they get the same pool sizing and driver properties bound explicitly.
+ */
+final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    static DataSource configure(final DataSource dataSource, final Environment environment, final String poolName) {
+        if (dataSource instanceof HikariDataSource) {
+            final HikariDataSource pool = (HikariDataSource) dataSource;
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName(poolName);
+        }
+        return dataSource;
+    }
+}
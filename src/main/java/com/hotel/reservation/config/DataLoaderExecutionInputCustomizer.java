@@ -0,0 +1,29 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.GraphQLDataLoaders;
+import com.hotel.reservation.ReadReplicaInstrumentation;
+import com.hotel.reservation.replica.ReadContext;
+import graphql.ExecutionInput;
+import graphql.spring.web.servlet.ExecutionInputCustomizer;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+@Primary
+@Component
+@AllArgsConstructor
+public class DataLoaderExecutionInputCustomizer implements ExecutionInputCustomizer {
+
+    private final GraphQLDataLoaders graphQLDataLoaders;
+
+    @Override
+    public CompletableFuture<ExecutionInput> customizeExecutionInput(final ExecutionInput executionInput, final WebRequest webRequest) {
+        return CompletableFuture.completedFuture(executionInput.transform(builder ->
+                builder.dataLoaderRegistry(graphQLDataLoaders.registry())
+                        .graphQLContext(context -> context.of(ReadReplicaInstrumentation.READ_YOUR_WRITES,
+                                ReadContext.readYourWrites()))));
+    }
+}
@@ -0,0 +1,60 @@
+package com.hotel.reservation.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.hotel.reservation.DateScalar;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.Formatter;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Binds request parameters and JSON bodies of type {@link Instant} with the shared {@link DateScalar#FORMATTER}.
+ */
+@Configuration
+public class DateFormatConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addFormatters(final FormatterRegistry registry) {
+        registry.addFormatterForFieldType(Instant.class, new Formatter<Instant>() {
+            @Override
+            public Instant parse(final String text, final Locale locale) {
+                return DateScalar.parse(text);
+            }
+
+            @Override
+            public String print(final Instant instant, final Locale locale) {
+                return DateScalar.format(instant);
+            }
+        });
+    }
+
+    @Bean
+    public Module instantModule() {
+        return new SimpleModule("hotelInstant")
+                .addSerializer(Instant.class, new JsonSerializer<Instant>() {
+                    @Override
+                    public void serialize(final Instant instant, final JsonGenerator generator,
+                                          final SerializerProvider serializers) throws IOException {
+                        generator.writeString(DateScalar.format(instant));
+                    }
+                })
+                .addDeserializer(Instant.class, new JsonDeserializer<Instant>() {
+                    @Override
+                    public Instant deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+                        return DateScalar.parse(parser.getValueAsString());
+                    }
+                });
+    }
+}
@@ -0,0 +1,50 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.replica.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts a {@link ReplicaRoutingDataSource} in front of the application's datasource when {@code hotel.replica.urls}
+ * lists read replicas of the primary. Replicas use {@code hotel.replica.username} and {@code hotel.replica.password},
+ * falling back to the {@code spring.datasource.*} credentials, and pools configured by {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty("hotel.replica.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    public static BeanPostProcessor replicaRoutingPostProcessor(final Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ReplicaRoutingDataSource) {
+                    return bean;
+                }
+                return new ReplicaRoutingDataSource((DataSource) bean, replicas(environment));
+            }
+        };
+    }
+
+    private static List<DataSource> replicas(final Environment environment) {
+        final String username = environment.getProperty("hotel.replica.username",
+                environment.getProperty("spring.datasource.username", ""));
+        final String password = environment.getProperty("hotel.replica.password",
+                environment.getProperty("spring.datasource.password", ""));
+        final List<DataSource> replicas = new ArrayList<>();
+        final String[] urls = environment.getRequiredProperty("hotel.replica.urls", String[].class);
+        for (int i = 0; i < urls.length; i++) {
+            replicas.add(ConnectionPools.configure(DataSourceBuilder.create().url(urls[i]).username(username).password(password).build(),
+                    environment, "replica-" + i));
+        }
+        return replicas;
+    }
+}
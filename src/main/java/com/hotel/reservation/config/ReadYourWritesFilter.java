@@ -0,0 +1,29 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.replica.ReadContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Lets a client read its own writes, a request with {@code X-Read-Your-Writes: true} keeps all reads on the primary.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        ReadContext.readYourWrites(Boolean.parseBoolean(request.getHeader(ReadContext.READ_YOUR_WRITES_HEADER)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadContext.readYourWrites(false);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.hotel.reservation.config;
 
 import com.hotel.reservation.exceptions.*;
+import com.hotel.reservation.feed.FeedOffsetExpiredException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -20,6 +21,11 @@ public class RestResponseExceptionHandler {
         return new ResponseEntity<Object>(exe.getMessage(), HttpStatus.UNAUTHORIZED);
     }
 
+    @ExceptionHandler(value = { FeedOffsetExpiredException.class})
+    protected ResponseEntity<Object> handleExpiredOffset(RuntimeException exe) {
+        return new ResponseEntity<Object>(exe.getMessage(), HttpStatus.GONE);
+    }
+
     @ExceptionHandler(value = { ReservationException.class, UserAlreadyExistException.class})
     protected ResponseEntity<Object> handleBadInputs(RuntimeException exe) {
         return new ResponseEntity<Object>(exe.getMessage(), HttpStatus.BAD_REQUEST);
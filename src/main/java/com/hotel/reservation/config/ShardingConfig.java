@@ -0,0 +1,41 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.shard.ShardRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the single datasource with a {@link ShardRoutingDataSource} when {@code hotel.sharding.urls} lists
+ * additional shard databases. Shard 0 keeps the {@code spring.datasource.*} settings, every shard gets its own pool
+ * configured by {@code spring.datasource.hikari.*}.
+ */
+@Configuration
+@ConditionalOnProperty("hotel.sharding.urls")
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(final DataSourceProperties properties,
+                                 @Value("${hotel.sharding.urls}") final String[] urls,
+                                 final Environment environment) {
+        final Map<Object, Object> shards = new HashMap<>();
+        shards.put(0, ConnectionPools.configure(properties.initializeDataSourceBuilder().build(), environment, "shard-0"));
+        for (int i = 0; i < urls.length; i++) {
+            shards.put(i + 1, ConnectionPools.configure(properties.initializeDataSourceBuilder().url(urls[i]).build(),
+                    environment, "shard-" + (i + 1)));
+        }
+        final ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(shards);
+        dataSource.setDefaultTargetDataSource(shards.get(0));
+        return dataSource;
+    }
+}
@@ -1,21 +1,32 @@
 package com.hotel.reservation.controllers;
 
 import com.hotel.reservation.Role;
+import com.hotel.reservation.dto.IdRange;
+import com.hotel.reservation.dto.OccupancyNight;
+import com.hotel.reservation.dto.ReservationRequest;
+import com.hotel.reservation.dto.ReservationResult;
+import com.hotel.reservation.dto.RoomSpec;
 import com.hotel.reservation.services.HotelService;
 import lombok.AllArgsConstructor;
-import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Date;
-
-import static com.hotel.reservation.GraphQLDataFetchers.DATE_FORMAT;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
 
 @RestController
 @AllArgsConstructor
 public class Controller {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final HotelService hotelService;
 
     @PostMapping("/createUser")
@@ -24,8 +35,26 @@ public class Controller {
     }
 
     @PostMapping("/addRoom")
-    public Integer addRoom(@RequestParam final String login) {
-        return hotelService.addRoom(login);
+    public Integer addRoom(@RequestParam final String login, final RoomSpec room) {
+        return hotelService.addRoom(login, room);
+    }
+
+    /**
+     * Adds {@code count} rooms without attributes, or one room per spec in the body.
+     */
+    @PostMapping("/addRooms")
+    public List<IdRange> addRooms(@RequestParam final String login,
+                                  @RequestParam(required = false) final Integer count,
+                                  @RequestBody(required = false) final List<RoomSpec> rooms) {
+        if (count != null) {
+            return hotelService.addRooms(login, count);
+        }
+        return hotelService.addRooms(login, rooms == null ? Collections.emptyList() : rooms);
+    }
+
+    @PostMapping("/deleteRooms")
+    public int deleteRooms(@RequestParam final String login, @RequestBody final List<Integer> roomIds) {
+        return hotelService.deleteRooms(login, roomIds);
     }
 
     @PostMapping("/deleteRoom")
@@ -40,16 +69,48 @@ public class Controller {
 
     @PostMapping("/reserveRoom")
     public void reserveRoom(@RequestParam final String login, @RequestParam final int roomId,
-                            @RequestParam @DateTimeFormat(pattern = DATE_FORMAT) Date startDate,
-                            @RequestParam @DateTimeFormat(pattern = DATE_FORMAT) Date endDate) {
+                            @RequestParam final Instant startDate,
+                            @RequestParam final Instant endDate) {
         hotelService.reserveRoom(login, roomId, startDate, endDate);
     }
 
 
     @PostMapping("/reserveRoomAdmin")
     public void reserveRoomAdmin(@RequestParam final String login, @RequestParam final int roomId, @RequestParam final String reservationLogin,
-                                 @RequestParam @DateTimeFormat(pattern = DATE_FORMAT) Date startDate,
-                                 @RequestParam @DateTimeFormat(pattern = DATE_FORMAT) Date endDate) {
+                                 @RequestParam final Instant startDate,
+                                 @RequestParam final Instant endDate) {
         hotelService.reserveRoomAdmin(login, roomId, reservationLogin, startDate, endDate);
     }
+
+    @GetMapping("/availability")
+    public List<Integer> availability(@RequestParam final Instant fromDate,
+                                      @RequestParam final Instant toDate,
+                                      @RequestParam(defaultValue = "0") final int page,
+                                      @RequestParam(defaultValue = "1000") final int limit) {
+        return hotelService.availableRoomIds(fromDate, toDate, page, limit);
+    }
+
+    @GetMapping("/availability/count")
+    public long availabilityCount(@RequestParam final Instant fromDate,
+                                  @RequestParam final Instant toDate) {
+        return hotelService.countAvailableRooms(fromDate, toDate);
+    }
+
+    @GetMapping("/occupancy")
+    public List<OccupancyNight> occupancy(@RequestParam final Instant fromDate,
+                                          @RequestParam final Instant toDate) {
+        return hotelService.occupancy(fromDate, toDate);
+    }
+
+    @PostMapping("/reserveRooms")
+    public List<ReservationResult> reserveRooms(@RequestParam final String login, @RequestBody final List<ReservationRequest> reservations) {
+        return hotelService.reserveRooms(login, reservations);
+    }
+
+    @GetMapping("/reservations/export")
+    public ResponseEntity<StreamingResponseBody> exportReservations(@RequestParam final String login) {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(hotelService.exportReservations(login)::accept);
+    }
 }
@@ -0,0 +1,74 @@
+package com.hotel.reservation.controllers;
+
+import com.hotel.reservation.feed.ReservationEvent;
+import com.hotel.reservation.feed.SseEventSubscriber;
+import com.hotel.reservation.services.HotelService;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Server-sent event streams of the reservation feed. Every event carries its offset as the event id, so a client
+ * that reconnects with {@code Last-Event-ID}, or passes the last offset it processed as {@code after}, continues
+ * where it stopped.
+ */
+@RestController
+public class FeedController {
+
+    private final HotelService hotelService;
+    private final GraphQL graphQL;
+    private final long timeoutMillis;
+    private final int batchSize;
+
+    public FeedController(final HotelService hotelService, final GraphQL graphQL,
+                          @Value("${hotel.feed.sse-timeout-seconds:1800}") final long timeoutSeconds,
+                          @Value("${hotel.feed.batch-size:256}") final int batchSize) {
+        this.hotelService = hotelService;
+        this.graphQL = graphQL;
+        this.timeoutMillis = timeoutSeconds * 1000;
+        this.batchSize = batchSize;
+    }
+
+    @GetMapping(value = "/reservations/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter reservationEvents(@RequestParam(required = false) final Long after,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) final Long lastEventId) {
+        final Publisher<ReservationEvent> events = hotelService.reservationEvents(lastEventId != null ? lastEventId : after);
+        return SseEventSubscriber.stream(events, timeoutMillis, batchSize, event -> SseEmitter.event()
+                .id(Long.toString(event.getOffset()))
+                .name(event.getType().name())
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    /**
+     * Runs a GraphQL subscription and streams one result per event. Anything else, or a subscription that fails
+     * validation, is answered with a single result.
+     */
+    @SuppressWarnings("unchecked")
+    @PostMapping(value = "/graphql/subscriptions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter graphQLSubscription(@RequestBody final Map<String, Object> body) throws IOException {
+        final Map<String, Object> variables = (Map<String, Object>) body.get("variables");
+        final ExecutionResult result = graphQL.execute(ExecutionInput.newExecutionInput()
+                .query((String) body.get("query"))
+                .operationName((String) body.get("operationName"))
+                .variables(variables == null ? Collections.emptyMap() : variables)
+                .build());
+        if (!(result.getData() instanceof Publisher)) {
+            final SseEmitter emitter = new SseEmitter(timeoutMillis);
+            emitter.send(SseEmitter.event().data(result.toSpecification(), MediaType.APPLICATION_JSON));
+            emitter.complete();
+            return emitter;
+        }
+        final Publisher<ExecutionResult> results = result.getData();
+        return SseEventSubscriber.stream(results, timeoutMillis, batchSize, next -> SseEmitter.event()
+                .data(next.toSpecification(), MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,37 @@
+package com.hotel.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inclusive range of consecutive ids.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdRange {
+    private int from;
+
+    private int to;
+
+    /**
+     * Collapses ascending ids into the fewest ranges.
+     */
+    public static List<IdRange> of(final List<Integer> ascendingIds) {
+        final List<IdRange> ranges = new ArrayList<>();
+        IdRange current = null;
+        for (int id : ascendingIds) {
+            if (current != null && id == current.to + 1) {
+                current.to = id;
+            } else {
+                current = new IdRange(id, id);
+                ranges.add(current);
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hotel.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyNight {
+    private LocalDate night;
+
+    private int booked;
+
+    private int free;
+
+    private int arrivals;
+
+    private int departures;
+}
@@ -0,0 +1,22 @@
+package com.hotel.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationRequest {
+    private Integer roomId;
+
+    private String login;
+
+    private Instant startDate;
+
+    private Instant endDate;
+}
@@ -0,0 +1,24 @@
+package com.hotel.reservation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationResult {
+    private int index;
+
+    private Integer reservationId;
+
+    private String error;
+
+    public static ReservationResult accepted(final int index, final Integer reservationId) {
+        return new ReservationResult(index, reservationId, null);
+    }
+
+    public static ReservationResult rejected(final int index, final String error) {
+        return new ReservationResult(index, null, error);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hotel.reservation.dto;
+
+import com.hotel.reservation.Amenity;
+import com.hotel.reservation.RoomType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Room search criteria, {@code null} fields do not filter. Rooms must have every listed amenity and, when both
+ * dates are set, be free for the whole window.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSearch {
+    private Integer hotelId;
+
+    private RoomType type;
+
+    private Integer minCapacity;
+
+    private Integer floor;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Set<Amenity> amenities;
+
+    private Instant fromDate;
+
+    private Instant toDate;
+}
@@ -0,0 +1,29 @@
+package com.hotel.reservation.dto;
+
+import com.hotel.reservation.Amenity;
+import com.hotel.reservation.RoomType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSpec {
+    private Integer hotelId;
+
+    private RoomType type;
+
+    private Integer capacity;
+
+    private Integer floor;
+
+    private BigDecimal pricePerNight;
+
+    private Set<Amenity> amenities;
+}
@@ -0,0 +1,8 @@
+package com.hotel.reservation.exceptions;
+
+public class ReservationCollisionException extends ReservationException {
+
+    public ReservationCollisionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.hotel.reservation.feed;
+
+import lombok.Getter;
+
+/**
+ * The events after the requested offset have been overwritten in the ring, or were published before this node
+ * started. The consumer has to rescan and continue from {@link #getOldestOffset()}.
+ */
+@Getter
+public class FeedOffsetExpiredException extends RuntimeException {
+
+    private final long oldestOffset;
+
+    public FeedOffsetExpiredException(final long offset, final long oldestOffset) {
+        super(String.format("Reservation events from offset %d are no longer available, the oldest is %d", offset, oldestOffset));
+        this.oldestOffset = oldestOffset;
+    }
+}
@@ -0,0 +1,35 @@
+package com.hotel.reservation.feed;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A booking or cancellation as published on the {@link ReservationFeed}. Offsets increase by one per event and
+ * are what a consumer resumes from.
+ */
+@Value
+public class ReservationEvent {
+
+    public enum Type {
+        BOOKED,
+        CANCELLED
+    }
+
+    long offset;
+
+    Type type;
+
+    /**
+     * Write-behind bookings are published by the journal flusher once it inserted them and their id is known.
+     */
+    Integer reservationId;
+
+    int roomId;
+
+    Instant startDate;
+
+    Instant endDate;
+
+    Instant at;
+}
@@ -0,0 +1,265 @@
+package com.hotel.reservation.feed;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hotel.reservation.exceptions.ReservationException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.String.format;
+
+/**
+ * In-process feed of reservation events kept in a ring of the last {@code hotel.feed.capacity} events. Publishing
+ * claims an offset with a single atomic increment and writes the event into its slot, it never waits for a
+ * consumer. A slot holds the event together with its offset, so a reader stops at the first slot that is not
+ * written yet and detects a slot that has been overwritten by a later lap.
+ * <p>
+ * Every subscriber gets its own dispatcher thread that reads batches of up to {@code hotel.feed.batch-size} events,
+ * never more than the subscriber requested. A subscriber that falls more than the capacity behind fails with
+ * {@link FeedOffsetExpiredException} rather than holding back bookings; at most {@code hotel.feed.max-subscribers}
+ * are served at once. Offsets start at the microseconds since the epoch when the node started, so an offset handed
+ * out before a restart is older than any event of the new ring and expires instead of skipping events.
+ */
+@Slf4j
+@Component
+public class ReservationFeed implements MeterBinder {
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicReferenceArray<ReservationEvent> ring;
+    private final int mask;
+    private final int batchSize;
+    private final long firstOffset;
+    private final AtomicLong nextOffset;
+    private final Set<Thread> waiting = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatchers;
+
+    public ReservationFeed(@Value("${hotel.feed.capacity:65536}") final int capacity,
+                           @Value("${hotel.feed.batch-size:256}") final int batchSize,
+                           @Value("${hotel.feed.max-subscribers:64}") final int maxSubscribers) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("hotel.feed.capacity must be a power of two, was " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.batchSize = batchSize;
+        this.firstOffset = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.nextOffset = new AtomicLong(firstOffset);
+        this.dispatchers = new ThreadPoolExecutor(0, maxSubscribers, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("reservation-feed-%d").setDaemon(true).build());
+    }
+
+    public ReservationEvent booked(final Integer reservationId, final int roomId, final Instant startDate, final Instant endDate) {
+        return publish(ReservationEvent.Type.BOOKED, reservationId, roomId, startDate, endDate);
+    }
+
+    public ReservationEvent cancelled(final Integer reservationId, final int roomId, final Instant startDate, final Instant endDate) {
+        return publish(ReservationEvent.Type.CANCELLED, reservationId, roomId, startDate, endDate);
+    }
+
+    /**
+     * Offset the next published event will get.
+     */
+    public long headOffset() {
+        return nextOffset.get();
+    }
+
+    /**
+     * Oldest offset that can still be read.
+     */
+    public long oldestOffset() {
+        return Math.max(firstOffset, nextOffset.get() - ring.length());
+    }
+
+    /**
+     * Reads up to {@code max} consecutive events starting at offset {@code from}, fewer when the following events
+     * are not published yet.
+     */
+    public List<ReservationEvent> read(final long from, final int max) {
+        if (from < firstOffset) {
+            throw new FeedOffsetExpiredException(from, oldestOffset());
+        }
+        final List<ReservationEvent> batch = new ArrayList<>(Math.min(max, batchSize));
+        for (long offset = from; batch.size() < max; offset++) {
+            final ReservationEvent event = ring.get(slot(offset));
+            if (event == null || event.getOffset() < offset) {
+                break;
+            }
+            if (event.getOffset() > offset) {
+                throw new FeedOffsetExpiredException(offset, oldestOffset());
+            }
+            batch.add(event);
+        }
+        return batch;
+    }
+
+    /**
+     * Events after offset {@code after}, or the events published from now on when it is {@code null}. Each
+     * subscriber is served by its own dispatcher thread; a subscriber beyond {@code hotel.feed.max-subscribers}
+     * fails with {@link RejectedExecutionException}.
+     */
+    public Publisher<ReservationEvent> events(final Long after) {
+        final long from = after == null ? headOffset() : after + 1;
+        if (from < oldestOffset()) {
+            throw new FeedOffsetExpiredException(from, oldestOffset());
+        }
+        if (from > headOffset()) {
+            throw new ReservationException(format("Offset %d is ahead of the reservation feed", after));
+        }
+        return subscriber -> {
+            final FeedSubscription subscription = new FeedSubscription(subscriber, from);
+            subscriber.onSubscribe(subscription);
+            try {
+                dispatchers.execute(subscription);
+            } catch (RejectedExecutionException e) {
+                subscriber.onError(new RejectedExecutionException("Too many reservation feed subscribers"));
+            }
+        };
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("hotel.feed.published", this, feed -> feed.headOffset() - feed.firstOffset)
+                .description("Reservation events published on the feed")
+                .register(registry);
+        Gauge.builder("hotel.feed.subscribers", dispatchers, ThreadPoolExecutor::getActiveCount)
+                .description("Subscribers being served by the feed")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchers.shutdownNow();
+    }
+
+    private ReservationEvent publish(final ReservationEvent.Type type, final Integer reservationId, final int roomId,
+                                     final Instant startDate, final Instant endDate) {
+        final long offset = nextOffset.getAndIncrement();
+        final ReservationEvent event = new ReservationEvent(offset, type, reservationId, roomId, startDate, endDate, Instant.now());
+        ring.set(slot(offset), event);
+        if (!waiting.isEmpty()) {
+            waiting.forEach(LockSupport::unpark);
+        }
+        return event;
+    }
+
+    /**
+     * Parks the calling dispatcher until the event at {@code offset} is published or the timeout elapses. The
+     * thread is registered before the slot is checked again, so a publish in between either is seen here or
+     * unparks it.
+     */
+    private void await(final long offset, final long nanos) {
+        final Thread thread = Thread.currentThread();
+        waiting.add(thread);
+        try {
+            final ReservationEvent event = ring.get(slot(offset));
+            if (event == null || event.getOffset() < offset) {
+                LockSupport.parkNanos(this, nanos);
+            }
+        } finally {
+            waiting.remove(thread);
+        }
+    }
+
+    private int slot(final long offset) {
+        return (int) (offset & mask);
+    }
+
+    private final class FeedSubscription implements Subscription, Runnable {
+
+        private final Subscriber<? super ReservationEvent> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+        private volatile Thread dispatcher;
+        private long next;
+
+        private FeedSubscription(final Subscriber<? super ReservationEvent> subscriber, final long from) {
+            this.subscriber = subscriber;
+            this.next = from;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            wakeUp();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            wakeUp();
+        }
+
+        @Override
+        public void run() {
+            dispatcher = Thread.currentThread();
+            try {
+                while (!cancelled) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (invalidRequest) {
+                        subscriber.onError(new IllegalArgumentException("Requested a non-positive number of events"));
+                        return;
+                    }
+                    final long wanted = demand.get();
+                    if (wanted == 0) {
+                        LockSupport.parkNanos(this, IDLE_NANOS);
+                        continue;
+                    }
+                    final List<ReservationEvent> batch = read(next, (int) Math.min(wanted, batchSize));
+                    if (batch.isEmpty()) {
+                        await(next, IDLE_NANOS);
+                        continue;
+                    }
+                    for (ReservationEvent event : batch) {
+                        if (cancelled) {
+                            return;
+                        }
+                        subscriber.onNext(event);
+                    }
+                    next += batch.size();
+                    if (wanted != Long.MAX_VALUE) {
+                        demand.addAndGet(-batch.size());
+                    }
+                }
+            } catch (FeedOffsetExpiredException e) {
+                subscriber.onError(e);
+            } catch (RuntimeException e) {
+                log.warn("Reservation feed subscriber failed at offset {}", next, e);
+            } finally {
+                dispatcher = null;
+            }
+        }
+
+        private void wakeUp() {
+            final Thread thread = dispatcher;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+}
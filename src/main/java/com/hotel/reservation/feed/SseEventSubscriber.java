@@ -0,0 +1,76 @@
+package com.hotel.reservation.feed;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Writes the items of a publisher to a server-sent events response. Items are requested a batch at a time and the
+ * next batch only once the previous one has been written, so a slow client holds back its own subscription and
+ * nothing else. The subscription is cancelled when the client disconnects or the emitter times out. A failure is
+ * sent as an {@code error} event before the stream is closed.
+ */
+public class SseEventSubscriber<T> implements Subscriber<T> {
+
+    private final SseEmitter emitter;
+    private final int batchSize;
+    private final Function<T, SseEmitter.SseEventBuilder> event;
+    private volatile Subscription subscription;
+    private int written;
+
+    private SseEventSubscriber(final SseEmitter emitter, final int batchSize, final Function<T, SseEmitter.SseEventBuilder> event) {
+        this.emitter = emitter;
+        this.batchSize = batchSize;
+        this.event = event;
+    }
+
+    public static <T> SseEmitter stream(final Publisher<T> publisher, final long timeoutMillis, final int batchSize,
+                                        final Function<T, SseEmitter.SseEventBuilder> event) {
+        final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        publisher.subscribe(new SseEventSubscriber<>(emitter, batchSize, event));
+        return emitter;
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        this.subscription = subscription;
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(final T item) {
+        try {
+            emitter.send(event.apply(item));
+        } catch (IOException | IllegalStateException e) {
+            subscription.cancel();
+            emitter.completeWithError(e);
+            return;
+        }
+        if (++written == batchSize) {
+            written = 0;
+            subscription.request(batchSize);
+        }
+    }
+
+    @Override
+    public void onError(final Throwable error) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(String.valueOf(error.getMessage())));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        emitter.complete();
+    }
+}
@@ -0,0 +1,191 @@
+package com.hotel.reservation.idempotency;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Makes the REST mutations safe to retry. A {@code POST} carrying an {@value #IDEMPOTENCY_KEY_HEADER} header runs
+ * once, its response is recorded in the {@link IdempotencyStore} and a retry with the same key gets that response
+ * back without reaching the controller. Responses with a server error status are not recorded, so the request can
+ * be retried. A key is bound to the request it was first used for (method, path, parameters and body), reusing it
+ * for another request or while the first one is still running answers {@code 409 Conflict}. Outcomes are counted
+ * as {@code hotel.idempotency.requests}.
+ */
+@Component
+@AllArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || request.getRequestURI().startsWith(request.getContextPath() + "/graphql");
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final String key = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    String.format("%s must have 1 to %d characters", IDEMPOTENCY_KEY_HEADER, MAX_KEY_LENGTH));
+            return;
+        }
+        final CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        final String fingerprint = fingerprint(cachedRequest);
+        final Optional<StoredResponse> stored;
+        try {
+            stored = idempotencyStore.claim(key, fingerprint);
+        } catch (IdempotencyKeyConflictException e) {
+            count("conflict");
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
+        }
+        if (stored.isPresent()) {
+            count("replayed");
+            replay(stored.get(), response);
+            return;
+        }
+
+        final ContentCachingResponseWrapper cachedResponse = new ContentCachingResponseWrapper(response);
+        boolean recorded = false;
+        try {
+            filterChain.doFilter(cachedRequest, cachedResponse);
+            if (cachedResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyStore.complete(key, new StoredResponse(fingerprint, cachedResponse.getStatus(),
+                        cachedResponse.getContentType(), cachedResponse.getContentAsByteArray()));
+                recorded = true;
+            }
+        } finally {
+            if (!recorded) {
+                idempotencyStore.release(key);
+            }
+            count("executed");
+            cachedResponse.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(final StoredResponse stored, final HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private static String fingerprint(final CachedBodyRequest request) {
+        final Hasher hasher = Hashing.sha256().newHasher()
+                .putString(request.getMethod(), StandardCharsets.UTF_8)
+                .putString(request.getRequestURI(), StandardCharsets.UTF_8);
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+            hasher.putString(name, StandardCharsets.UTF_8);
+            for (String value : values) {
+                hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+            }
+        });
+        return hasher.putBytes(request.body).hash().toString();
+    }
+
+    private void count(final String outcome) {
+        meterRegistry.counter("hotel.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    /**
+     * Reads the body up front so it can be part of the fingerprint and still be read by the controller. Form
+     * parameters are parsed before that, their body is consumed by the container.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final Map<String, String[]> parameters;
+        private final byte[] body;
+
+        CachedBodyRequest(final HttpServletRequest request) throws IOException {
+            super(request);
+            this.parameters = request.getParameterMap();
+            this.body = ByteStreams.toByteArray(request.getInputStream());
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            return parameters;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), getCharacterEncoding() == null
+                    ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding())));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            final ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The whole body is already in memory, so it is available at once and then read completely.
+                 */
+                @Override
+                public void setReadListener(final ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(final byte[] buffer, final int offset, final int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.hotel.reservation.idempotency;
+
+/**
+ * The key is held by a request that is still running or was used for a different request.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,36 @@
+package com.hotel.reservation.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Bounded store of completed responses by idempotency key, entries expire after {@code hotel.idempotency.ttl-seconds}.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a new request or returns the response recorded for it.
+     *
+     * @return the recorded response, empty if the caller now holds the key and has to {@link #complete} or
+     * {@link #release} it
+     * @throws IdempotencyKeyConflictException if the key is held by a running request or was used with another
+     *                                         fingerprint
+     */
+    Optional<StoredResponse> claim(String key, String fingerprint);
+
+    void complete(String key, StoredResponse response);
+
+    /**
+     * Forgets a claimed key so the request can be retried, used when it failed without a response worth replaying.
+     */
+    void release(String key);
+
+    static Optional<StoredResponse> replay(final String key, final String fingerprint, final StoredResponse stored) {
+        if (!stored.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyConflictException(String.format("Idempotency key %s was used for a different request", key));
+        }
+        if (!stored.isCompleted()) {
+            throw new IdempotencyKeyConflictException(String.format("Request with idempotency key %s is still in progress", key));
+        }
+        return Optional.of(stored);
+    }
+}
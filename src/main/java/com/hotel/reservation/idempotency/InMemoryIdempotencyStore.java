@@ -0,0 +1,54 @@
+package com.hotel.reservation.idempotency;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps responses in a size bounded cache of this instance. Sizes are published as {@code cache.*} meters tagged
+ * {@code cache=idempotencyKeys}.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore, MeterBinder {
+
+    private final Cache<String, StoredResponse> responses;
+
+    public InMemoryIdempotencyStore(@Value("${hotel.idempotency.maximum-size:100000}") final long maximumSize,
+                                    @Value("${hotel.idempotency.ttl-seconds:86400}") final long ttlSeconds) {
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<StoredResponse> claim(final String key, final String fingerprint) {
+        final StoredResponse stored = responses.asMap().putIfAbsent(key, StoredResponse.inProgress(fingerprint));
+        return stored == null ? Optional.empty() : IdempotencyStore.replay(key, fingerprint, stored);
+    }
+
+    @Override
+    public void complete(final String key, final StoredResponse response) {
+        responses.put(key, response);
+    }
+
+    @Override
+    public void release(final String key) {
+        responses.invalidate(key);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, responses, "idempotencyKeys");
+    }
+}
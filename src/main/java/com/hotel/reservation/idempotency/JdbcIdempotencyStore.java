@@ -0,0 +1,95 @@
+package com.hotel.reservation.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps responses in the {@code idempotency_key} table of the primary database, so retries can land on any
+ * instance. Expired rows are ignored when their key comes back and purged at most once a minute by whichever
+ * request claims a key. A claim still in progress after {@code hotel.idempotency.in-progress-seconds} is taken to
+ * belong to a crashed instance and can be claimed again, so keep that above the longest request.
+ */
+@Component
+@ConditionalOnProperty(name = "hotel.idempotency.store", havingValue = "jdbc")
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration inProgress;
+    private final AtomicLong nextPurge = new AtomicLong();
+
+    public JdbcIdempotencyStore(final JdbcTemplate jdbcTemplate,
+                                @Value("${hotel.idempotency.ttl-seconds:86400}") final long ttlSeconds,
+                                @Value("${hotel.idempotency.in-progress-seconds:60}") final long inProgressSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.inProgress = Duration.ofSeconds(inProgressSeconds);
+    }
+
+    @PostConstruct
+    public void createTable() {
+        jdbcTemplate.execute("create table if not exists idempotency_key (" +
+                "id varchar(255) not null primary key, " +
+                "fingerprint varchar(64) not null, " +
+                "status integer not null, " +
+                "content_type varchar(255), " +
+                "body blob, " +
+                "created_at timestamp not null)");
+    }
+
+    @Override
+    public Optional<StoredResponse> claim(final String key, final String fingerprint) {
+        final Instant now = Instant.now();
+        final Timestamp expired = Timestamp.from(now.minus(ttl));
+        final Timestamp abandoned = Timestamp.from(now.minus(inProgress));
+        purgeExpired(expired, abandoned);
+        jdbcTemplate.update("delete from idempotency_key where id = ? and " +
+                "(created_at < ? or status = 0 and created_at < ?)", key, expired, abandoned);
+        try {
+            jdbcTemplate.update("insert into idempotency_key (id, fingerprint, status, created_at) values (?, ?, 0, ?)",
+                    key, fingerprint, Timestamp.from(now));
+            return Optional.empty();
+        } catch (DuplicateKeyException e) {
+            final List<StoredResponse> stored = jdbcTemplate.query(
+                    "select fingerprint, status, content_type, body from idempotency_key where id = ?",
+                    (rs, row) -> new StoredResponse(rs.getString(1), rs.getInt(2), rs.getString(3), rs.getBytes(4)), key);
+            if (stored.isEmpty()) {
+                throw new IdempotencyKeyConflictException(String.format("Request with idempotency key %s is still in progress", key));
+            }
+            return IdempotencyStore.replay(key, fingerprint, stored.get(0));
+        }
+    }
+
+    @Override
+    public void complete(final String key, final StoredResponse response) {
+        jdbcTemplate.update("update idempotency_key set status = ?, content_type = ?, body = ? where id = ?",
+                response.getStatus(), response.getContentType(), response.getBody(), key);
+    }
+
+    @Override
+    public void release(final String key) {
+        jdbcTemplate.update("delete from idempotency_key where id = ?", key);
+    }
+
+    private void purgeExpired(final Timestamp expired, final Timestamp abandoned) {
+        final long now = System.currentTimeMillis();
+        final long next = nextPurge.get();
+        if (now >= next && nextPurge.compareAndSet(next, now + PURGE_INTERVAL_MILLIS)) {
+            jdbcTemplate.update("delete from idempotency_key where created_at < ? or status = 0 and created_at < ?",
+                    expired, abandoned);
+        }
+    }
+}
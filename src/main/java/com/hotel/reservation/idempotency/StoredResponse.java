@@ -0,0 +1,26 @@
+package com.hotel.reservation.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The response recorded under an idempotency key. While the first request is still running only its fingerprint
+ * is known and the status is {@code 0}.
+ */
+@Value
+@AllArgsConstructor
+public class StoredResponse {
+
+    String fingerprint;
+    int status;
+    String contentType;
+    byte[] body;
+
+    static StoredResponse inProgress(final String fingerprint) {
+        return new StoredResponse(fingerprint, 0, null, new byte[0]);
+    }
+
+    public boolean isCompleted() {
+        return status != 0;
+    }
+}
@@ -0,0 +1,50 @@
+package com.hotel.reservation.index;
+
+import com.hotel.reservation.repository.ReservationInterval;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Room ids and the reservations that had not ended at {@link #getAsOf()}, stored as packed columns.
+ * This is what the in-memory indexes are built from.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class Inventory {
+
+    private final Instant asOf;
+    private final int[] roomIds;
+    private final int[] reservationIds;
+    private final int[] reservationRoomIds;
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] userIds;
+
+    public int reservationCount() {
+        return reservationIds.length;
+    }
+
+    static Inventory of(final Instant asOf, final Collection<Integer> roomIds, final List<ReservationInterval> intervals) {
+        final int size = intervals.size();
+        final int[] reservationIds = new int[size];
+        final int[] reservationRoomIds = new int[size];
+        final long[] starts = new long[size];
+        final long[] ends = new long[size];
+        final int[] userIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            final ReservationInterval interval = intervals.get(i);
+            reservationIds[i] = interval.getId();
+            reservationRoomIds[i] = interval.getRoomId();
+            starts[i] = interval.getStartDate().toEpochMilli();
+            ends[i] = interval.getEndDate().toEpochMilli();
+            userIds[i] = interval.getUserId();
+        }
+        return new Inventory(asOf, roomIds.stream().mapToInt(Integer::intValue).toArray(),
+                reservationIds, reservationRoomIds, starts, ends, userIds);
+    }
+}
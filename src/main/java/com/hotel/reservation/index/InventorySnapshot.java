@@ -0,0 +1,256 @@
+package com.hotel.reservation.index;
+
+import com.google.common.collect.Lists;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Binary snapshot of the {@link Inventory} for warm starts, enabled with {@code hotel.snapshot.enabled=true}.
+ * The snapshot is written every {@code interval-seconds} and at shutdown. At startup the indexes are built from the
+ * memory mapped file instead of loading every active reservation through Hibernate. The snapshot is then caught
+ * up with the database: the current room ids and ids of active reservations of every shard are read, reservations
+ * that were cancelled or ended since the snapshot are dropped and only the missing ones are fetched.
+ * <p>
+ * Layout, big endian: magic, version, snapshot time in epoch millis, room count, reservation count, the room ids,
+ * then one {@code (reservationId, roomId, start, end, userId)} record of {@value #RECORD_BYTES} bytes per reservation.
+ */
+@Slf4j
+@Component
+public class InventorySnapshot {
+
+    private static final int MAGIC = 0x48524931;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int RECORD_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+
+    private final boolean enabled;
+    private final Path path;
+    private final long intervalSeconds;
+    private final RoomRepository roomRepository;
+    private final ReservationRepository reservationRepository;
+    private final ShardRouter shardRouter;
+
+    private Inventory warmStart;
+    private boolean ready;
+    private ScheduledExecutorService writer;
+
+    public InventorySnapshot(@Value("${hotel.snapshot.enabled:false}") final boolean enabled,
+                             @Value("${hotel.snapshot.path:data/inventory.snapshot}") final String path,
+                             @Value("${hotel.snapshot.interval-seconds:300}") final long intervalSeconds,
+                             final RoomRepository roomRepository,
+                             final ReservationRepository reservationRepository,
+                             final ShardRouter shardRouter) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.intervalSeconds = intervalSeconds;
+        this.roomRepository = roomRepository;
+        this.reservationRepository = reservationRepository;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Until the application is ready every index gets the same inventory, from the snapshot when there is a usable
+     * one. Afterwards the inventory is always read from the database.
+     */
+    public synchronized Inventory inventory() {
+        if (enabled && !ready) {
+            if (warmStart == null) {
+                warmStart = load();
+            }
+            if (warmStart != null) {
+                return warmStart;
+            }
+        }
+        return fromDatabase();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onReady() {
+        ready = true;
+        warmStart = null;
+        if (!enabled || writer != null) {
+            return;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "inventory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer != null) {
+            writer.shutdownNow();
+            writeQuietly();
+        }
+    }
+
+    /**
+     * Writes the current database state to a temporary file and moves it over the previous snapshot.
+     */
+    public void write() {
+        final Inventory inventory = fromDatabase();
+        final long size = HEADER_BYTES + (long) inventory.getRoomIds().length * Integer.BYTES
+                + (long) inventory.reservationCount() * RECORD_BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Inventory is too large for a single mapped snapshot");
+        }
+        final Path temporary = Paths.get(path + ".tmp");
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC)
+                        .putInt(VERSION)
+                        .putLong(inventory.getAsOf().toEpochMilli())
+                        .putInt(inventory.getRoomIds().length)
+                        .putInt(inventory.reservationCount());
+                for (int roomId : inventory.getRoomIds()) {
+                    buffer.putInt(roomId);
+                }
+                for (int i = 0; i < inventory.reservationCount(); i++) {
+                    buffer.putInt(inventory.getReservationIds()[i])
+                            .putInt(inventory.getReservationRoomIds()[i])
+                            .putLong(inventory.getStarts()[i])
+                            .putLong(inventory.getEnds()[i])
+                            .putInt(inventory.getUserIds()[i]);
+                }
+                buffer.force();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (RuntimeException e) {
+            log.warn("Writing the inventory snapshot to {} failed", path, e);
+        }
+    }
+
+    /**
+     * Reads every shard in parallel. Room ids of later shards are higher, so the concatenated ids stay ordered.
+     */
+    private Inventory fromDatabase() {
+        final Instant now = Instant.now();
+        return Inventory.of(now, allShards(shard -> roomRepository.findAllIds()),
+                allShards(shard -> reservationRepository.findIntervalsEndingAfter(now)));
+    }
+
+    private Inventory load() {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Ignoring inventory snapshot {} with an unknown format", path);
+                return null;
+            }
+            final Instant takenAt = Instant.ofEpochMilli(buffer.getLong());
+            final int rooms = buffer.getInt();
+            final int reservations = buffer.getInt();
+            if (rooms < 0 || reservations < 0
+                    || buffer.remaining() != (long) rooms * Integer.BYTES + (long) reservations * RECORD_BYTES) {
+                log.warn("Ignoring truncated inventory snapshot {}", path);
+                return null;
+            }
+            buffer.position(buffer.position() + rooms * Integer.BYTES);
+            return catchUp(takenAt, buffer, reservations);
+        } catch (IOException e) {
+            log.warn("Could not read inventory snapshot {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the snapshot records that are still active and fetches the reservations created since it was written.
+     * The room ids are cheap to read and are always taken from the database.
+     */
+    private Inventory catchUp(final Instant takenAt, final MappedByteBuffer records, final int reservations) {
+        final Instant now = Instant.now();
+        final List<Integer> roomIds = allShards(shard -> roomRepository.findAllIds());
+        final Set<Integer> missing = new HashSet<>(allShards(shard -> reservationRepository.findIdsEndingAfter(now)));
+        final int capacity = missing.size();
+        final int[] reservationIds = new int[capacity];
+        final int[] reservationRoomIds = new int[capacity];
+        final long[] starts = new long[capacity];
+        final long[] ends = new long[capacity];
+        final int[] userIds = new int[capacity];
+        int size = 0;
+        for (int i = 0; i < reservations; i++) {
+            final int reservationId = records.getInt();
+            final int roomId = records.getInt();
+            final long start = records.getLong();
+            final long end = records.getLong();
+            final int userId = records.getInt();
+            if (missing.remove(reservationId)) {
+                reservationIds[size] = reservationId;
+                reservationRoomIds[size] = roomId;
+                starts[size] = start;
+                ends[size] = end;
+                userIds[size] = userId;
+                size++;
+            }
+        }
+        final int fromSnapshot = size;
+        final List<ReservationInterval> newer = new ArrayList<>();
+        shardRouter.byShard(missing).forEach((shard, ids) -> shardRouter.run(shard, () -> {
+            for (List<Integer> batch : Lists.partition(ids, CATCH_UP_BATCH_SIZE)) {
+                newer.addAll(reservationRepository.findIntervalsByIdIn(batch));
+            }
+        }));
+        for (ReservationInterval interval : newer) {
+            reservationIds[size] = interval.getId();
+            reservationRoomIds[size] = interval.getRoomId();
+            starts[size] = interval.getStartDate().toEpochMilli();
+            ends[size] = interval.getEndDate().toEpochMilli();
+            userIds[size] = interval.getUserId();
+            size++;
+        }
+        log.info("Loaded {} reservations from the inventory snapshot taken at {}, caught up {} newer ones",
+                fromSnapshot, takenAt, size - fromSnapshot);
+        return new Inventory(now, roomIds.stream().mapToInt(Integer::intValue).toArray(),
+                Arrays.copyOf(reservationIds, size), Arrays.copyOf(reservationRoomIds, size),
+                Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), Arrays.copyOf(userIds, size));
+    }
+
+    private <T> List<T> allShards(final IntFunction<List<T>> query) {
+        final List<T> all = new ArrayList<>();
+        shardRouter.fanOut(query).forEach(all::addAll);
+        return all;
+    }
+}
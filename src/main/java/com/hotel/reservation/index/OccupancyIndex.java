@@ -0,0 +1,296 @@
+package com.hotel.reservation.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per night occupancy bitmaps with one bit per room. Night {@code d} is day {@code d} in the system time zone, a
+ * reservation marks every day its time range overlaps, a stay within a single day included. A window from the start
+ * of one day to the start of a later one therefore collides with exactly the reservations marked on one of its days,
+ * other windows are left to the exact overlap query. Days a reservation covers only in part, usually its arrival and
+ * departure day, can be shared with another reservation of the room and are reference counted, so releasing one of
+ * them keeps the bit of the other. Rooms are mapped to dense bit slots in registration order and slots of deleted
+ * rooms are not reused. While rooms are registered in ascending id order, slot order is id order and keyset pages
+ * can be served from the bitmaps.
+ */
+@Component
+@RequiredArgsConstructor
+public class OccupancyIndex {
+
+    private final InventorySnapshot inventorySnapshot;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> nights = new HashMap<>();
+    private final Map<Long, Integer> sharedNights = new HashMap<>();
+    private final Map<Integer, Integer> slotsByRoomId = new HashMap<>();
+    private int[] roomIdsBySlot = new int[Long.SIZE];
+    private long[] activeRooms = new long[1];
+    private int slots;
+    private boolean slotsInIdOrder = true;
+    private long firstIndexedNight;
+
+    @PostConstruct
+    public void rebuild() {
+        final Inventory inventory = inventorySnapshot.inventory();
+        lock.writeLock().lock();
+        try {
+            nights.clear();
+            sharedNights.clear();
+            slotsByRoomId.clear();
+            activeRooms = new long[1];
+            slots = 0;
+            slotsInIdOrder = true;
+            firstIndexedNight = night(inventory.getAsOf().toEpochMilli());
+            for (int roomId : inventory.getRoomIds()) {
+                registerRoom(roomId);
+            }
+            for (int i = 0; i < inventory.reservationCount(); i++) {
+                mark(inventory.getReservationRoomIds()[i], inventory.getStarts()[i], inventory.getEnds()[i], true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether both bounds are at the start of a day, the window spans at least one night and all of its
+     * nights are indexed
+     */
+    public boolean covers(final Instant from, final Instant to) {
+        final long fromNight = night(from);
+        return fromNight >= firstIndexedNight && fromNight < night(to) && startsNight(from) && startsNight(to);
+    }
+
+    public boolean containsRoom(final int roomId) {
+        lock.readLock().lock();
+        try {
+            return slotsByRoomId.containsKey(roomId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addRoom(final int roomId) {
+        lock.writeLock().lock();
+        try {
+            registerRoom(roomId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeRoom(final int roomId) {
+        lock.writeLock().lock();
+        try {
+            final Integer slot = slotsByRoomId.remove(roomId);
+            if (slot != null) {
+                activeRooms[slot >>> 6] &= ~(1L << slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void occupy(final int roomId, final Instant start, final Instant end) {
+        lock.writeLock().lock();
+        try {
+            mark(roomId, start, end, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void release(final int roomId, final Instant start, final Instant end) {
+        lock.writeLock().lock();
+        try {
+            mark(roomId, start, end, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long countFree(final Instant from, final Instant to) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (long word : freeWords(from, to)) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of rooms free for every night of the window, in slot order, skipping the first {@code offset} matches.
+     */
+    public List<Integer> freeRooms(final Instant from, final Instant to, final int offset, final int limit) {
+        lock.readLock().lock();
+        try {
+            return collect(freeWords(from, to), 0, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of rooms free for every night of the window with an id greater than {@code afterRoomId}, in id order.
+     *
+     * @return empty when rooms were not registered in id order and the page has to be read from the database
+     */
+    public Optional<List<Integer>> freeRoomsAfter(final Instant from, final Instant to, final int afterRoomId,
+                                                  final int limit) {
+        lock.readLock().lock();
+        try {
+            if (!slotsInIdOrder) {
+                return Optional.empty();
+            }
+            int low = 0;
+            int high = slots;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (roomIdsBySlot[middle] <= afterRoomId) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return Optional.of(collect(freeWords(from, to), low, 0, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static long night(final Instant date) {
+        return date.atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    static long night(final long epochMilli) {
+        return night(Instant.ofEpochMilli(epochMilli));
+    }
+
+    private static boolean startsNight(final Instant date) {
+        return date.atZone(ZoneId.systemDefault()).toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    private static boolean startsNight(final long epochMilli) {
+        return startsNight(Instant.ofEpochMilli(epochMilli));
+    }
+
+    private long[] freeWords(final Instant from, final Instant to) {
+        final long[] free = new long[activeRooms.length];
+        for (long night = night(from), last = night(to); night < last; night++) {
+            final long[] occupied = nights.get(night);
+            if (occupied != null) {
+                for (int word = 0; word < occupied.length; word++) {
+                    free[word] |= occupied[word];
+                }
+            }
+        }
+        for (int word = 0; word < free.length; word++) {
+            free[word] = ~free[word] & activeRooms[word];
+        }
+        return free;
+    }
+
+    private List<Integer> collect(final long[] free, final int fromSlot, final int offset, final int limit) {
+        final List<Integer> roomIds = new ArrayList<>(Math.min(limit, slots));
+        int skipped = 0;
+        for (int word = fromSlot >>> 6; word < free.length && roomIds.size() < limit; word++) {
+            long bits = word == fromSlot >>> 6 ? free[word] & (-1L << fromSlot) : free[word];
+            while (bits != 0 && roomIds.size() < limit) {
+                final int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (skipped++ >= offset) {
+                    roomIds.add(roomIdsBySlot[slot]);
+                }
+            }
+        }
+        return roomIds;
+    }
+
+    private void registerRoom(final int roomId) {
+        if (slotsByRoomId.containsKey(roomId)) {
+            return;
+        }
+        final int slot = slots++;
+        if (slot > 0 && roomIdsBySlot[slot - 1] > roomId) {
+            slotsInIdOrder = false;
+        }
+        if (slot == roomIdsBySlot.length) {
+            roomIdsBySlot = Arrays.copyOf(roomIdsBySlot, slot * 2);
+        }
+        if ((slot >>> 6) == activeRooms.length) {
+            activeRooms = Arrays.copyOf(activeRooms, activeRooms.length * 2);
+        }
+        roomIdsBySlot[slot] = roomId;
+        slotsByRoomId.put(roomId, slot);
+        activeRooms[slot >>> 6] |= 1L << slot;
+    }
+
+    private void mark(final int roomId, final Instant start, final Instant end, final boolean occupied) {
+        mark(roomId, start.toEpochMilli(), end.toEpochMilli(), occupied);
+    }
+
+    private void mark(final int roomId, final long start, final long end, final boolean occupied) {
+        final Integer slot = slotsByRoomId.get(roomId);
+        if (slot == null) {
+            return;
+        }
+        if (end <= start) {
+            return;
+        }
+        final int word = slot >>> 6;
+        final long bit = 1L << slot;
+        final long first = night(start);
+        final long last = night(end - 1);
+        for (long night = first; night <= last; night++) {
+            final boolean partial = (night == first && !startsNight(start)) || (night == last && !startsNight(end));
+            if (partial && !share(slot, night, occupied)) {
+                continue;
+            }
+            long[] bits = nights.get(night);
+            if (bits == null || bits.length <= word) {
+                if (!occupied) {
+                    continue;
+                }
+                bits = bits == null ? new long[activeRooms.length] : Arrays.copyOf(bits, activeRooms.length);
+                nights.put(night, bits);
+            }
+            if (occupied) {
+                bits[word] |= bit;
+            } else {
+                bits[word] &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * Counts the reservations of a slot that cover part of a night.
+     *
+     * @return whether the bit has to change, that is on every occupy and on the release of the last of them
+     */
+    private boolean share(final int slot, final long night, final boolean occupied) {
+        final long key = ((long) slot << 32) | (night & 0xFFFFFFFFL);
+        if (occupied) {
+            sharedNights.merge(key, 1, Integer::sum);
+            return true;
+        }
+        final Integer count = sharedNights.get(key);
+        if (count != null && count > 1) {
+            sharedNights.put(key, count - 1);
+            return false;
+        }
+        sharedNights.remove(key);
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hotel.reservation.index;
+
+import com.hotel.reservation.model.Reservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory per room interval index used for reservation collision checks.
+ * Rebuilt from the {@link InventorySnapshot} at startup and kept in sync by {@code HotelService}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservationIntervalIndex {
+
+    private final InventorySnapshot inventorySnapshot;
+
+    private final Map<Integer, RoomIntervals> rooms = new ConcurrentHashMap<>();
+    private volatile long indexedSince;
+
+    /**
+     * Loads only reservations that have not ended yet. Bookings reaching into the past are still checked
+     * against the database by {@code BookingEngine}, so history does not need to live on the heap.
+     */
+    @PostConstruct
+    public void rebuild() {
+        final Inventory inventory = inventorySnapshot.inventory();
+        rooms.clear();
+        indexedSince = inventory.getAsOf().toEpochMilli();
+        for (int i = 0; i < inventory.reservationCount(); i++) {
+            add(inventory.getReservationRoomIds()[i], inventory.getReservationIds()[i], inventory.getStarts()[i], inventory.getEnds()[i]);
+        }
+    }
+
+    /**
+     * @return whether every reservation that could collide with an interval starting at {@code start} is indexed
+     */
+    public boolean covers(final long start) {
+        return start >= indexedSince;
+    }
+
+    public Optional<Integer> findCollision(final int roomId, final long start, final long end) {
+        final RoomIntervals intervals = rooms.get(roomId);
+        if (intervals == null) {
+            return Optional.empty();
+        }
+        final int reservationId;
+        synchronized (intervals) {
+            reservationId = intervals.findOverlapping(start, end);
+        }
+        return reservationId == RoomIntervals.NONE ? Optional.empty() : Optional.of(reservationId);
+    }
+
+    public void add(final Reservation reservation) {
+        add(reservation.getRoom().getId(), reservation.getId(), reservation.getStartDate().toEpochMilli(), reservation.getEndDate().toEpochMilli());
+    }
+
+    public void remove(final int roomId, final int reservationId) {
+        final RoomIntervals intervals = rooms.get(roomId);
+        if (intervals != null) {
+            synchronized (intervals) {
+                intervals.remove(reservationId);
+            }
+        }
+    }
+
+    public void removeRoom(final int roomId) {
+        rooms.remove(roomId);
+    }
+
+    public void add(final int roomId, final int reservationId, final long start, final long end) {
+        final RoomIntervals intervals = rooms.computeIfAbsent(roomId, id -> new RoomIntervals());
+        synchronized (intervals) {
+            intervals.add(reservationId, start, end);
+        }
+    }
+}
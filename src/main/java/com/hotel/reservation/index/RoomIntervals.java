@@ -0,0 +1,101 @@
+package com.hotel.reservation.index;
+
+import java.util.Arrays;
+
+/**
+ * Reservations of a single room kept as parallel arrays of {@code [start, end)} epoch millis sorted by start.
+ * {@code maxEnds[i]} holds the greatest end among the first {@code i + 1} intervals, which makes the overlap
+ * lookup two binary searches even if the stored intervals overlap each other.
+ * Not thread safe, callers synchronize on the instance.
+ */
+public final class RoomIntervals {
+
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private long[] starts = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private long[] maxEnds = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @return id of a reservation overlapping {@code [start, end)} or {@link #NONE} when there is none
+     */
+    public int findOverlapping(final long start, final long end) {
+        final int candidates = firstStartNotBefore(end);
+        int low = 0;
+        int high = candidates;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (maxEnds[mid] > start) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low < candidates ? ids[low] : NONE;
+    }
+
+    public void add(final int id, final long start, final long end) {
+        if (size == ids.length) {
+            final int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+        }
+        final int position = firstStartNotBefore(start + 1);
+        final int tail = size - position;
+        System.arraycopy(ids, position, ids, position + 1, tail);
+        System.arraycopy(starts, position, starts, position + 1, tail);
+        System.arraycopy(ends, position, ends, position + 1, tail);
+        ids[position] = id;
+        starts[position] = start;
+        ends[position] = end;
+        size++;
+        recomputeMaxEnds(position);
+    }
+
+    public boolean remove(final int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                final int tail = size - i - 1;
+                System.arraycopy(ids, i + 1, ids, i, tail);
+                System.arraycopy(starts, i + 1, starts, i, tail);
+                System.arraycopy(ends, i + 1, ends, i, tail);
+                size--;
+                recomputeMaxEnds(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int firstStartNotBefore(final long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (starts[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void recomputeMaxEnds(final int from) {
+        long max = from == 0 ? Long.MIN_VALUE : maxEnds[from - 1];
+        for (int i = from; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+}
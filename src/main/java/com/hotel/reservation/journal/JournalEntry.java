@@ -0,0 +1,28 @@
+package com.hotel.reservation.journal;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * A booking confirmed in memory and appended to the journal but not yet inserted into the database.
+ */
+@Value
+public class JournalEntry {
+    long sequence;
+
+    int roomId;
+
+    String login;
+
+    Instant startDate;
+
+    Instant endDate;
+
+    /**
+     * Negative id the entry is indexed under until the flusher knows its database id, never {@code RoomIntervals.NONE}.
+     */
+    public int pendingId() {
+        return -1 - (int) (sequence % Integer.MAX_VALUE);
+    }
+}
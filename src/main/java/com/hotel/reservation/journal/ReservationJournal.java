@@ -0,0 +1,589 @@
+package com.hotel.reservation.journal;
+
+import com.hotel.reservation.feed.ReservationFeed;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.OccupancyAggregates;
+import com.hotel.reservation.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind path for single bookings, enabled with {@code hotel.journal.enabled=true}. A booking confirmed
+ * against the in-memory indexes is appended to a local file and acknowledged once the file is forced to disk.
+ * One fsync covers every entry appended within {@code group-commit-millis} or up to {@code group-commit-entries}
+ * entries. A background flusher inserts durable entries into the database in batches and records the last inserted
+ * sequence in a checkpoint file. The journal is truncated whenever the flusher has caught up.
+ * <p>
+ * At startup entries after the checkpoint are replayed into the database. An entry that was inserted right before
+ * a crash, but not yet checkpointed, is recognised by its identical room and dates and skipped. Flushes retried
+ * after a failure go through the same check, since the failure may have come after the insert committed. The
+ * in-memory indexes are the source of truth for collisions, so this mode is meant for a single node.
+ * <p>
+ * Record layout: payload length, sequence, room id, start and end epoch millis, login length, login bytes, CRC32
+ * of the payload. Replay stops at the first torn or corrupt record.
+ */
+@Slf4j
+@Component
+public class ReservationJournal {
+
+    private static final int FIXED_PAYLOAD_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES + Short.BYTES;
+
+    private final boolean enabled;
+    private final Path path;
+    private final Path checkpointPath;
+    private final long groupCommitNanos;
+    private final int groupCommitEntries;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final UserRepository userRepository;
+    private final RoomRepository roomRepository;
+    private final ReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationIntervalIndex reservationIntervalIndex;
+    private final OccupancyIndex occupancyIndex;
+    private final ShardRouter shardRouter;
+    private final OccupancyAggregates occupancyAggregates;
+    private final ReservationFeed reservationFeed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition commitNeeded = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final Object flushLock = new Object();
+    private final CRC32 crc = new CRC32();
+    private final Deque<JournalEntry> unflushed = new ArrayDeque<>();
+    private List<JournalEntry> unsynced = new ArrayList<>();
+    private FileChannel channel;
+    private long position;
+    private long nextSequence;
+    private long durableSequence;
+    private long flushedSequence;
+    private boolean syncRequested;
+    private boolean retrying;
+    private IOException syncFailure;
+    private volatile boolean running;
+    private Thread committer;
+    private ScheduledExecutorService flusher;
+
+    public ReservationJournal(@Value("${hotel.journal.enabled:false}") final boolean enabled,
+                              @Value("${hotel.journal.path:data/reservations.journal}") final String path,
+                              @Value("${hotel.journal.group-commit-millis:2}") final long groupCommitMillis,
+                              @Value("${hotel.journal.group-commit-entries:128}") final int groupCommitEntries,
+                              @Value("${hotel.journal.flush-interval-millis:50}") final long flushIntervalMillis,
+                              @Value("${hotel.journal.flush-batch-size:500}") final int flushBatchSize,
+                              final UserRepository userRepository,
+                              final RoomRepository roomRepository,
+                              final ReservationRepository reservationRepository,
+                              final TransactionTemplate transactionTemplate,
+                              final ReservationIntervalIndex reservationIntervalIndex,
+                              final OccupancyIndex occupancyIndex,
+                              final ShardRouter shardRouter,
+                              final OccupancyAggregates occupancyAggregates,
+                              final ReservationFeed reservationFeed) {
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.checkpointPath = Paths.get(path + ".checkpoint");
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.groupCommitEntries = groupCommitEntries;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.userRepository = userRepository;
+        this.roomRepository = roomRepository;
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.reservationIntervalIndex = reservationIntervalIndex;
+        this.occupancyIndex = occupancyIndex;
+        this.shardRouter = shardRouter;
+        this.occupancyAggregates = occupancyAggregates;
+        this.reservationFeed = reservationFeed;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        flushedSequence = readCheckpoint();
+        final List<JournalEntry> entries = readEntries();
+        final List<JournalEntry> pending = entries.stream()
+                .filter(entry -> entry.getSequence() > flushedSequence)
+                .collect(Collectors.toList());
+        for (int from = 0; from < pending.size(); from += flushBatchSize) {
+            insert(pending.subList(from, Math.min(pending.size(), from + flushBatchSize)), true, true);
+        }
+        final long lastSequence = entries.isEmpty() ? flushedSequence
+                : Math.max(flushedSequence, entries.get(entries.size() - 1).getSequence());
+        writeCheckpoint(lastSequence);
+        flushedSequence = lastSequence;
+        durableSequence = lastSequence;
+        nextSequence = lastSequence + 1;
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(0);
+        position = 0;
+        running = true;
+        committer = new Thread(this::commitLoop, "reservation-journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "reservation-journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} journaled reservations from {}", pending.size(), path);
+        }
+    }
+
+    /**
+     * Writes the booking to the journal without waiting for the disk, see {@link #awaitDurable(JournalEntry)}.
+     */
+    public JournalEntry append(final int roomId, final String login, final Instant startDate, final Instant endDate) {
+        final byte[] loginBytes = login.getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (!running || syncFailure != null) {
+                throw new IllegalStateException("Reservation journal is not accepting entries");
+            }
+            final JournalEntry entry = new JournalEntry(nextSequence, roomId, login, startDate, endDate);
+            final ByteBuffer record = encode(entry, loginBytes);
+            try {
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+            } catch (IOException e) {
+                truncateQuietly(position - record.position());
+                throw new UncheckedIOException(e);
+            }
+            nextSequence++;
+            unsynced.add(entry);
+            if (unsynced.size() == 1 || unsynced.size() >= groupCommitEntries) {
+                commitNeeded.signal();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the group commit covering the entry has been forced to disk.
+     */
+    public JournalEntry awaitDurable(final JournalEntry entry) {
+        lock.lock();
+        try {
+            while (durableSequence < entry.getSequence()) {
+                if (syncFailure != null) {
+                    throw new UncheckedIOException(syncFailure);
+                }
+                committed.awaitUninterruptibly();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces and inserts everything appended so far. Called before operations that read reservations from the
+     * database and must see journaled bookings, such as cancellations and room deletion.
+     */
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            final long target = nextSequence - 1;
+            syncRequested = true;
+            commitNeeded.signal();
+            while (durableSequence < target && syncFailure == null && running) {
+                committed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        drain();
+        close();
+    }
+
+    /**
+     * Stops the background threads and releases the file without draining, which is what a crash leaves behind.
+     */
+    void close() throws InterruptedException {
+        flusher.shutdownNow();
+        lock.lock();
+        try {
+            running = false;
+            commitNeeded.signal();
+        } finally {
+            lock.unlock();
+        }
+        committer.join();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            final List<JournalEntry> batch;
+            lock.lock();
+            try {
+                while (running && unsynced.isEmpty() && !syncRequested) {
+                    commitNeeded.awaitUninterruptibly();
+                }
+                if (!running && unsynced.isEmpty()) {
+                    return;
+                }
+                long remaining = groupCommitNanos;
+                while (running && !syncRequested && unsynced.size() < groupCommitEntries && remaining > 0) {
+                    try {
+                        remaining = commitNeeded.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                batch = unsynced;
+                unsynced = new ArrayList<>();
+                syncRequested = false;
+            } finally {
+                lock.unlock();
+            }
+            IOException failure = null;
+            if (!batch.isEmpty()) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            lock.lock();
+            try {
+                if (failure != null) {
+                    log.error("Forcing the reservation journal failed, journaled bookings are rejected from now on", failure);
+                    syncFailure = failure;
+                } else if (!batch.isEmpty()) {
+                    durableSequence = batch.get(batch.size() - 1).getSequence();
+                    unflushed.addAll(batch);
+                }
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing the reservation journal failed, retrying in {} ms", flushIntervalMillis, e);
+        }
+    }
+
+    private void flush() {
+        synchronized (flushLock) {
+            while (true) {
+                final List<JournalEntry> batch = new ArrayList<>(flushBatchSize);
+                lock.lock();
+                try {
+                    final Iterator<JournalEntry> entries = unflushed.iterator();
+                    while (batch.size() < flushBatchSize && entries.hasNext()) {
+                        batch.add(entries.next());
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (!batch.isEmpty()) {
+                    try {
+                        insert(batch, false, retrying);
+                    } catch (RuntimeException e) {
+                        retrying = true;
+                        throw e;
+                    }
+                    retrying = false;
+                }
+                checkpoint();
+                if (batch.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the sequence before the first entry still waiting for the database and truncates the journal once
+     * that covers everything appended. A checkpoint that could not be written is retried on the next flush.
+     */
+    private void checkpoint() {
+        final long sequence;
+        lock.lock();
+        try {
+            sequence = unflushed.isEmpty() ? durableSequence : unflushed.peekFirst().getSequence() - 1;
+        } finally {
+            lock.unlock();
+        }
+        if (sequence <= flushedSequence) {
+            return;
+        }
+        writeCheckpoint(sequence);
+        lock.lock();
+        try {
+            flushedSequence = sequence;
+            if (flushedSequence == nextSequence - 1) {
+                channel.truncate(0);
+                position = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the entries of each shard in one transaction on that shard, which also counts them in the occupancy
+     * totals, and swaps their pending ids in the interval index for the database ids. Replayed entries are not
+     * indexed yet, so they are added to both indexes instead. With {@code dedupe} entries already in the database
+     * are not inserted again but take over the existing id. Flushed entries leave the queue as soon as their shard
+     * commits, so a failure on a later shard only retries the entries of that shard and the ones after it.
+     * Bookings are published on the feed once their id is known. That includes entries a retry finds in the
+     * database, whose first attempt failed before publishing, but not those found by a replay.
+     */
+    private void insert(final List<JournalEntry> batch, final boolean replay, final boolean dedupe) {
+        final Map<Integer, List<JournalEntry>> byShard = batch.stream()
+                .collect(Collectors.groupingBy(entry -> shardRouter.shardOf(entry.getRoomId()), TreeMap::new, Collectors.toList()));
+        byShard.forEach((shard, entries) -> shardRouter.run(shard, () -> insertOnShard(entries, replay, dedupe)));
+    }
+
+    private void insertOnShard(final List<JournalEntry> batch, final boolean replay, final boolean dedupe) {
+        final Set<String> logins = batch.stream().map(JournalEntry::getLogin).collect(Collectors.toSet());
+        final Map<String, User> users = userRepository.findByLoginIn(logins).stream()
+                .collect(Collectors.toMap(User::getLogin, Function.identity()));
+        final List<JournalEntry> inserted = new ArrayList<>(batch.size());
+        final List<JournalEntry> dropped = new ArrayList<>();
+        final Map<JournalEntry, Integer> found = new HashMap<>();
+        occupancyAggregates.prepare(
+                batch.stream().map(JournalEntry::getStartDate).min(Comparator.naturalOrder()).get(),
+                batch.stream().map(JournalEntry::getEndDate).max(Comparator.naturalOrder()).get());
+        final List<Reservation> reservations = transactionTemplate.execute(status -> {
+            final Set<Integer> roomIds = batch.stream().map(JournalEntry::getRoomId).collect(Collectors.toSet());
+            final Map<Integer, Room> rooms = StreamSupport.stream(roomRepository.findAllById(roomIds).spliterator(), false)
+                    .collect(Collectors.toMap(Room::getId, Function.identity()));
+            final Map<String, Integer> existing = dedupe ? existingIds(batch, roomIds) : Collections.emptyMap();
+            final List<Reservation> toSave = new ArrayList<>(batch.size());
+            for (JournalEntry entry : batch) {
+                final Integer id = existing.get(key(entry.getRoomId(), entry.getStartDate(), entry.getEndDate()));
+                if (id != null) {
+                    found.put(entry, id);
+                    continue;
+                }
+                final Room room = rooms.get(entry.getRoomId());
+                final User user = users.get(entry.getLogin());
+                if (room == null || user == null) {
+                    log.warn("Dropping journaled reservation {}, its room or user no longer exists", entry);
+                    dropped.add(entry);
+                    continue;
+                }
+                toSave.add(Reservation.builder()
+                        .room(room)
+                        .user(user)
+                        .startDate(entry.getStartDate())
+                        .endDate(entry.getEndDate())
+                        .build());
+                inserted.add(entry);
+            }
+            reservationRepository.saveAll(toSave);
+            occupancyAggregates.booked(toSave);
+            return toSave;
+        });
+        final Map<JournalEntry, Integer> ids = replay ? new HashMap<>() : new HashMap<>(found);
+        for (int i = 0; i < reservations.size(); i++) {
+            final JournalEntry entry = inserted.get(i);
+            ids.put(entry, reservations.get(i).getId());
+            reservationIntervalIndex.add(reservations.get(i));
+            if (replay) {
+                occupancyIndex.occupy(entry.getRoomId(), entry.getStartDate(), entry.getEndDate());
+            } else {
+                reservationIntervalIndex.remove(entry.getRoomId(), entry.pendingId());
+            }
+        }
+        if (!replay) {
+            removeFlushed(batch);
+            for (JournalEntry entry : dropped) {
+                reservationIntervalIndex.remove(entry.getRoomId(), entry.pendingId());
+                occupancyIndex.release(entry.getRoomId(), entry.getStartDate(), entry.getEndDate());
+            }
+            found.forEach((entry, id) -> {
+                reservationIntervalIndex.remove(entry.getRoomId(), entry.pendingId());
+                reservationIntervalIndex.add(entry.getRoomId(), id,
+                        entry.getStartDate().toEpochMilli(), entry.getEndDate().toEpochMilli());
+            });
+        }
+        for (JournalEntry entry : batch) {
+            final Integer id = ids.get(entry);
+            if (id != null) {
+                reservationFeed.booked(id, entry.getRoomId(), entry.getStartDate(), entry.getEndDate());
+            }
+        }
+    }
+
+    private void removeFlushed(final List<JournalEntry> entries) {
+        final Set<JournalEntry> flushed = new HashSet<>(entries);
+        lock.lock();
+        try {
+            int remaining = flushed.size();
+            for (Iterator<JournalEntry> queued = unflushed.iterator(); remaining > 0 && queued.hasNext(); ) {
+                if (flushed.contains(queued.next())) {
+                    queued.remove();
+                    remaining--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Integer> existingIds(final List<JournalEntry> batch, final Set<Integer> roomIds) {
+        final Instant from = batch.stream().map(JournalEntry::getStartDate).min(Comparator.naturalOrder()).orElse(Instant.EPOCH);
+        final Instant to = batch.stream().map(JournalEntry::getEndDate).max(Comparator.naturalOrder()).orElse(Instant.EPOCH);
+        final Map<String, Integer> ids = new HashMap<>();
+        for (ReservationInterval interval : reservationRepository.findIntervalsOverlapping(roomIds, from, to)) {
+            ids.put(key(interval.getRoomId(), interval.getStartDate(), interval.getEndDate()), interval.getId());
+        }
+        return ids;
+    }
+
+    private static String key(final int roomId, final Instant startDate, final Instant endDate) {
+        return roomId + ":" + startDate.toEpochMilli() + ":" + endDate.toEpochMilli();
+    }
+
+    private ByteBuffer encode(final JournalEntry entry, final byte[] login) {
+        if (login.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Login is too long to be journaled");
+        }
+        final int length = FIXED_PAYLOAD_BYTES + login.length;
+        final ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+        record.putInt(length)
+                .putLong(entry.getSequence())
+                .putInt(entry.getRoomId())
+                .putLong(entry.getStartDate().toEpochMilli())
+                .putLong(entry.getEndDate().toEpochMilli())
+                .putShort((short) login.length)
+                .put(login);
+        crc.reset();
+        crc.update(record.array(), Integer.BYTES, length);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private List<JournalEntry> readEntries() throws IOException {
+        final List<JournalEntry> entries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        final ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(path));
+        final CRC32 checksum = new CRC32();
+        while (journal.remaining() >= Integer.BYTES) {
+            final int length = journal.getInt();
+            if (length < FIXED_PAYLOAD_BYTES || journal.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            final int payload = journal.position();
+            checksum.reset();
+            checksum.update(journal.array(), payload, length);
+            if (journal.getInt(payload + length) != (int) checksum.getValue()) {
+                break;
+            }
+            final long sequence = journal.getLong();
+            final int roomId = journal.getInt();
+            final Instant startDate = Instant.ofEpochMilli(journal.getLong());
+            final Instant endDate = Instant.ofEpochMilli(journal.getLong());
+            final byte[] login = new byte[journal.getShort()];
+            journal.get(login);
+            journal.getInt();
+            entries.add(new JournalEntry(sequence, roomId, new String(login, StandardCharsets.UTF_8), startDate, endDate));
+        }
+        return entries;
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return 0;
+        }
+        return Long.parseLong(new String(Files.readAllBytes(checkpointPath), StandardCharsets.US_ASCII).trim());
+    }
+
+    private void writeCheckpoint(final long sequence) {
+        final Path temporary = Paths.get(checkpointPath + ".tmp");
+        try {
+            Files.write(temporary, Long.toString(sequence).getBytes(StandardCharsets.US_ASCII));
+            Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void truncateQuietly(final long size) {
+        try {
+            channel.truncate(size);
+            position = size;
+        } catch (IOException e) {
+            log.error("Could not remove a partially written journal record", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.hotel.reservation.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Marks a one-off data migration of a shard as done, so it is not repeated on later starts.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Backfill {
+    @Id
+    private String name;
+
+    private Instant completedAt;
+}
@@ -0,0 +1,26 @@
+package com.hotel.reservation.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Running totals of one night, kept up to date by {@code OccupancyAggregates} as reservations are saved and
+ * deleted. Departures count the reservations ending on the morning of the day.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NightOccupancy {
+    @Id
+    private LocalDate night;
+
+    private int booked;
+
+    private int arrivals;
+
+    private int departures;
+}
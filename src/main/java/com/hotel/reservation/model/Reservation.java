@@ -1,34 +1,38 @@
 package com.hotel.reservation.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.*;
 
 import javax.persistence.*;
-import java.util.Date;
+import java.time.Instant;
 
 @Data
 @Entity
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes =
+    @Index(name = "reservation_room_dates", columnList = "room_id, startDate, endDate")
+)
 public class Reservation {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled_sequence")
     private Integer id;
 
     @Column(nullable = false)
-    private Date startDate;
+    private Instant startDate;
 
     @Column(nullable = false)
-    private Date endDate;
+    private Instant endDate;
 
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id")
     private Room room;
 
-    @ManyToOne
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
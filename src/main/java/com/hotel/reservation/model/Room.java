@@ -1,23 +1,54 @@
 package com.hotel.reservation.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.hotel.reservation.Amenity;
+import com.hotel.reservation.RoomType;
+import lombok.*;
 
 import javax.persistence.*;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @Data
 @Entity
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = {
+    @Index(name = "room_type_capacity_price", columnList = "type, capacity, pricePerNight"),
+    @Index(name = "room_price", columnList = "pricePerNight, id"),
+    @Index(name = "room_floor", columnList = "floor"),
+    @Index(name = "room_hotel", columnList = "hotelId")
+})
 public class Room {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled_sequence")
     private Integer id;
 
-    @OneToMany(mappedBy = "room", fetch = FetchType.EAGER)
+    @Version
+    private long version;
+
+    private Integer hotelId;
+
+    private RoomType type;
+
+    private Integer capacity;
+
+    private Integer floor;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal pricePerNight;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ElementCollection
+    @CollectionTable(name = "room_amenity", joinColumns = @JoinColumn(name = "room_id"),
+            indexes = @Index(name = "room_amenity_amenity", columnList = "amenity, room_id"))
+    @Column(name = "amenity", nullable = false)
+    private Set<Amenity> amenities;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "room")
     private List<Reservation> reservations;
 }
@@ -16,7 +16,7 @@ import java.util.List;
 )
 public class User {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled_sequence")
     private Integer id;
 
     @Column(length = 50)
@@ -25,6 +25,8 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "user")
     private List<Reservation> reservations;
 }
@@ -0,0 +1,14 @@
+/**
+ * All entities draw ids from the shared {@code hibernate_sequence} in blocks of 50. The pooled-lo optimizer
+ * starts a block at the stored value, so ids issued before the block size was raised are never reused.
+ * With several shards every shard has its own sequence and ids carry the shard, see {@code ShardSequenceGenerator}.
+ */
+@GenericGenerator(name = "pooled_sequence", strategy = "com.hotel.reservation.shard.ShardSequenceGenerator", parameters = {
+        @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+})
+package com.hotel.reservation.model;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
@@ -0,0 +1,89 @@
+package com.hotel.reservation.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Whether the current thread reads from a replica. Only read-only work binds the replica, everything else, writes
+ * and the collision check of a booking included, uses the primary. A request that sent
+ * {@value #READ_YOUR_WRITES_HEADER} reads from the primary throughout, so it sees a booking it has just made even
+ * while the replicas lag behind.
+ */
+public final class ReadContext {
+
+    public static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
+    private static final ThreadLocal<Boolean> REPLICA = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Boolean> READ_YOUR_WRITES = ThreadLocal.withInitial(() -> false);
+
+    private ReadContext() {
+    }
+
+    public static boolean onReplica() {
+        return REPLICA.get();
+    }
+
+    public static boolean readYourWrites() {
+        return READ_YOUR_WRITES.get();
+    }
+
+    /**
+     * Marks the work of the current request as having to read from the primary, cleared with {@code false}.
+     */
+    public static void readYourWrites(final boolean readYourWrites) {
+        if (readYourWrites) {
+            READ_YOUR_WRITES.set(true);
+        } else {
+            READ_YOUR_WRITES.remove();
+        }
+    }
+
+    /**
+     * Runs read-only work on a replica unless the current request reads its own writes.
+     */
+    public static <T> T readOnly(final Supplier<T> work) {
+        return on(!readYourWrites(), work);
+    }
+
+    public static <T> T on(final boolean replica, final Supplier<T> work) {
+        final boolean previous = bind(replica);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * @return the previous binding, to be passed to {@link #restore(boolean)}
+     */
+    public static boolean bind(final boolean replica) {
+        final boolean previous = REPLICA.get();
+        REPLICA.set(replica);
+        return previous;
+    }
+
+    public static void restore(final boolean replica) {
+        if (replica) {
+            REPLICA.set(true);
+        } else {
+            REPLICA.remove();
+        }
+    }
+
+    /**
+     * Carries the routing of the calling thread over to the thread that runs the work.
+     */
+    public static <T> Supplier<T> propagate(final Supplier<T> work) {
+        final boolean replica = onReplica();
+        final boolean readYourWrites = readYourWrites();
+        return () -> {
+            final boolean previousReadYourWrites = readYourWrites();
+            readYourWrites(readYourWrites);
+            try {
+                return on(replica, work);
+            } finally {
+                readYourWrites(previousReadYourWrites);
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.hotel.reservation.replica;
+
+import com.hotel.reservation.shard.ShardContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only work to the replicas in turn and everything else to the primary. The replicas
+ * mirror shard 0, work bound to another shard always uses the primary, which may itself be a
+ * {@link com.hotel.reservation.shard.ShardRoutingDataSource}. Like shards, the target is fixed when an
+ * EntityManager takes its connection, at the start of a transaction or else at each repository call, so the
+ * read-only binding has to be in place before the transaction begins. An EntityManager spanning a web request would
+ * keep the first connection of the request, which is why {@code spring.jpa.open-in-view} is off.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(final DataSource primary, final List<DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !ReadContext.onReplica() || ShardContext.current() != 0) {
+            return PRIMARY;
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    /**
+     * The primary followed by the replicas.
+     */
+    public List<DataSource> targets() {
+        final List<DataSource> targets = new ArrayList<>(replicas.size() + 1);
+        targets.add(primary);
+        targets.addAll(replicas);
+        return targets;
+    }
+
+    /**
+     * This replaces the primary as the application's datasource, so it also closes the primary.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            close(replica);
+        }
+        close(primary);
+    }
+
+    private static void close(final DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+}
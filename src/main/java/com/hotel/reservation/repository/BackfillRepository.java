@@ -0,0 +1,9 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.model.Backfill;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillRepository extends CrudRepository<Backfill, String> {
+}
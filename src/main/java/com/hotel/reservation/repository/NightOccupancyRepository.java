@@ -0,0 +1,45 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.model.NightOccupancy;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface NightOccupancyRepository extends CrudRepository<NightOccupancy, LocalDate> {
+
+    @Query("select n from NightOccupancy n where n.night >= :from and n.night < :to order by n.night")
+    List<NightOccupancy> findRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select n from NightOccupancy n order by n.night")
+    List<NightOccupancy> findAllForUpdate();
+
+    @Query("select n.night from NightOccupancy n where n.night >= :from and n.night <= :to")
+    List<LocalDate> findNights(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("update NightOccupancy n set n.booked = n.booked + :delta where n.night >= :from and n.night < :to")
+    int addBooked(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update NightOccupancy n set n.booked = n.booked + :booked, n.arrivals = n.arrivals + :arrivals, " +
+            "n.departures = n.departures + :departures where n.night = :night")
+    int addTotals(@Param("night") LocalDate night, @Param("booked") int booked, @Param("arrivals") int arrivals,
+                  @Param("departures") int departures);
+
+    @Modifying
+    @Query("update NightOccupancy n set n.arrivals = n.arrivals + :delta where n.night = :night")
+    int addArrivals(@Param("night") LocalDate night, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update NightOccupancy n set n.departures = n.departures + :delta where n.night = :night")
+    int addDepartures(@Param("night") LocalDate night, @Param("delta") int delta);
+}
@@ -0,0 +1,18 @@
+package com.hotel.reservation.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of the columns needed by the collision check, avoids loading the room and user of a reservation.
+ */
+public interface ReservationInterval {
+    Integer getId();
+
+    Integer getRoomId();
+
+    Integer getUserId();
+
+    Instant getStartDate();
+
+    Instant getEndDate();
+}
@@ -1,13 +1,78 @@
 package com.hotel.reservation.repository;
 
 import com.hotel.reservation.model.Reservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Date;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface ReservationRepository extends CrudRepository<Reservation, Integer> {
-    List<Reservation> findByStartDateAfterOrEndDateBefore(Date endDate, Date startDate);
+
+    String EXPORT_FETCH_SIZE = "1000";
+
+    String INTERVAL_SELECT = "select r.id as id, r.room.id as roomId, r.user.id as userId, " +
+            "r.startDate as startDate, r.endDate as endDate from Reservation r ";
+
+    Optional<Reservation> findFirstByRoomIdAndStartDateBeforeAndEndDateAfter(int roomId, Instant endDate, Instant startDate);
+
+    long countByRoomIdAndUserLogin(int roomId, String login);
+
+    long countByEndDateAfter(Instant date);
+
+    List<Reservation> findByRoomIdIn(Collection<Integer> roomIds);
+
+    List<Reservation> findByUserIdIn(Collection<Integer> userIds);
+
+    @Query("select r from Reservation r where r.user.id = :userId and r.id > :after order by r.id")
+    List<Reservation> findByUserIdAfter(@Param("userId") int userId, @Param("after") int after, Pageable pageable);
+
+    @Query("select r from Reservation r where r.room.id = :roomId and r.user.login = :login and r.id > :after order by r.id")
+    List<Reservation> findByRoomIdAndUserLoginAfter(@Param("roomId") int roomId, @Param("login") String login,
+                                                    @Param("after") int after, Pageable pageable);
+
+    @Query(INTERVAL_SELECT + "where r.id = :id")
+    Optional<ReservationInterval> findIntervalById(@Param("id") int id);
+
+    @Query(INTERVAL_SELECT + "where r.endDate > :from")
+    List<ReservationInterval> findIntervalsEndingAfter(@Param("from") Instant from);
+
+    @Query("select r.id from Reservation r where r.endDate > :from")
+    List<Integer> findIdsEndingAfter(@Param("from") Instant from);
+
+    @Query(INTERVAL_SELECT + "where r.id in :ids")
+    List<ReservationInterval> findIntervalsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(INTERVAL_SELECT + "where r.room.id in :roomIds")
+    List<ReservationInterval> findIntervalsByRoomIdIn(@Param("roomIds") Collection<Integer> roomIds);
+
+    @Modifying
+    @Query("delete from Reservation r where r.room.id in :roomIds")
+    int deleteByRoomIdIn(@Param("roomIds") Collection<Integer> roomIds);
+
+    @Query(INTERVAL_SELECT + "where r.room.id in :roomIds and r.startDate < :endDate and r.endDate > :startDate")
+    List<ReservationInterval> findIntervalsOverlapping(@Param("roomIds") Collection<Integer> roomIds,
+                                                       @Param("startDate") Instant startDate,
+                                                       @Param("endDate") Instant endDate);
+
+    /**
+     * Reads through a forward only cursor fetching {@value #EXPORT_FETCH_SIZE} rows at a time. Needs an open
+     * transaction and has to be closed. MySQL only honours the fetch size with {@code useCursorFetch=true}.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(INTERVAL_SELECT + "order by r.id")
+    Stream<ReservationInterval> streamIntervals();
 }
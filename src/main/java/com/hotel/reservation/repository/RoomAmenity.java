@@ -0,0 +1,9 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.Amenity;
+
+public interface RoomAmenity {
+    Integer getRoomId();
+
+    Amenity getAmenity();
+}
@@ -1,14 +1,58 @@
 package com.hotel.reservation.repository;
 
 import com.hotel.reservation.model.Room;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Optional;
 
 @Repository
-public interface RoomRepository extends CrudRepository<Room, Integer> {
+public interface RoomRepository extends CrudRepository<Room, Integer>, RoomSearchRepository {
 
-    List<Room> findByReservationsIsEmpty();
+    String AVAILABLE_ROOM_CONDITION = "not exists (select res.id from Reservation res where res.room = r " +
+            "and res.startDate < :toDate and res.endDate > :fromDate)";
+
+    @Query("select r.id from Room r order by r.id")
+    List<Integer> findAllIds();
+
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("select r from Room r where r.id = :id")
+    Optional<Room> findByIdForUpdate(@Param("id") int id);
+
+    @Lock(LockModeType.PESSIMISTIC_FORCE_INCREMENT)
+    @Query("select r from Room r where r.id in :ids order by r.id")
+    List<Room> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    @Query("select r from Room r where " + AVAILABLE_ROOM_CONDITION)
+    List<Room> findAvailable(@Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate, Pageable pageable);
+
+    @Query("select r.id from Room r where r.id > :after and " + AVAILABLE_ROOM_CONDITION + " order by r.id")
+    List<Integer> findAvailableIdsAfter(@Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate,
+                                        @Param("after") int after, Pageable pageable);
+
+    @Query("select count(r) from Room r where " + AVAILABLE_ROOM_CONDITION)
+    long countAvailable(@Param("fromDate") Instant fromDate, @Param("toDate") Instant toDate);
+
+    @Query("select r.id as roomId, a as amenity from Room r join r.amenities a where r.id in :ids")
+    List<RoomAmenity> findAmenities(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Bulk deletes skip the element collection mapping, its rows have to be deleted first.
+     */
+    @Modifying
+    @Query(value = "delete from room_amenity where room_id in (:ids)", nativeQuery = true)
+    int deleteAmenitiesByRoomIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Modifying
+    @Query("delete from Room r where r.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,15 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.model.Room;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+public interface RoomSearchRepository {
+
+    /**
+     * Rooms matching every set criterion, in the order of the pageable's sort. Runs one query without a count.
+     */
+    List<Room> search(RoomSearch search, Pageable pageable);
+}
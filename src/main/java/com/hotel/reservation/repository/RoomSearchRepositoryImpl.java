@@ -0,0 +1,83 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.Amenity;
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the search query from the criteria that are actually set, so the database only sees predicates it can
+ * match against the room indexes instead of {@code :param is null or ...} branches.
+ */
+@AllArgsConstructor
+public class RoomSearchRepositoryImpl implements RoomSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Room> search(final RoomSearch search, final Pageable pageable) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Room> query = builder.createQuery(Room.class);
+        final Root<Room> room = query.from(Room.class);
+
+        final List<Predicate> predicates = new ArrayList<>();
+        if (search.getHotelId() != null) {
+            predicates.add(builder.equal(room.get("hotelId"), search.getHotelId()));
+        }
+        if (search.getType() != null) {
+            predicates.add(builder.equal(room.get("type"), search.getType()));
+        }
+        if (search.getMinCapacity() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(room.<Integer>get("capacity"), search.getMinCapacity()));
+        }
+        if (search.getFloor() != null) {
+            predicates.add(builder.equal(room.get("floor"), search.getFloor()));
+        }
+        if (search.getMinPrice() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(room.<BigDecimal>get("pricePerNight"), search.getMinPrice()));
+        }
+        if (search.getMaxPrice() != null) {
+            predicates.add(builder.lessThanOrEqualTo(room.<BigDecimal>get("pricePerNight"), search.getMaxPrice()));
+        }
+        if (search.getAmenities() != null) {
+            for (Amenity amenity : search.getAmenities()) {
+                predicates.add(builder.isMember(amenity, room.<Set<Amenity>>get("amenities")));
+            }
+        }
+        if (search.getFromDate() != null && search.getToDate() != null) {
+            predicates.add(builder.not(builder.exists(overlapping(query, builder, room, search.getFromDate(), search.getToDate()))));
+        }
+
+        query.select(room)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), room, builder));
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    /**
+     * Same condition as {@link RoomRepository#AVAILABLE_ROOM_CONDITION}, served by the reservation room and dates index.
+     */
+    private static Subquery<Integer> overlapping(final CriteriaQuery<Room> query, final CriteriaBuilder builder,
+                                                 final Root<Room> room, final Instant fromDate, final Instant toDate) {
+        final Subquery<Integer> overlapping = query.subquery(Integer.class);
+        final Root<Reservation> reservation = overlapping.from(Reservation.class);
+        return overlapping.select(reservation.<Integer>get("id"))
+                .where(builder.equal(reservation.get("room"), room),
+                        builder.lessThan(reservation.<Instant>get("startDate"), toDate),
+                        builder.greaterThan(reservation.<Instant>get("endDate"), fromDate));
+    }
+}
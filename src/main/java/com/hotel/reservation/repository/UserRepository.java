@@ -1,12 +1,22 @@
 package com.hotel.reservation.repository;
 
+import com.hotel.reservation.Role;
 import com.hotel.reservation.model.User;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends CrudRepository<User, Integer> {
     Optional<User> findByLogin(String login);
+
+    @Query("select u.role from User u where u.login = :login")
+    Optional<Role> findRoleByLogin(@Param("login") String login);
+
+    List<User> findByLoginIn(Collection<String> logins);
 }
@@ -0,0 +1,169 @@
+package com.hotel.reservation.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.replica.ReadContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer and short-lived result cache in front of {@link AvailabilityService}. Identical queries that
+ * arrive while one is running wait for its answer instead of running it again, and the answer is kept for
+ * {@code hotel.availability-cache.expire-after-write-millis}. Saving or deleting a reservation through
+ * {@link HotelService} drops the cached answers whose date range touches its nights and keeps answers still being
+ * computed from being cached, adding or deleting rooms drops everything. Writes on other nodes are only seen once
+ * the answer expires. Callers that read their own writes do not share answers with replica readers.
+ * Outcomes are counted as {@code hotel.availability.cache{outcome=hit|coalesced|miss}}.
+ */
+@Component
+public class AvailabilityCache implements MeterBinder {
+
+    private static final Duration NIGHT = Duration.ofDays(1);
+
+    private final AvailabilityService availabilityService;
+    private final Cache<Key, Object> results;
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public AvailabilityCache(final AvailabilityService availabilityService,
+                             @Value("${hotel.availability-cache.maximum-size:10000}") final long maximumSize,
+                             @Value("${hotel.availability-cache.expire-after-write-millis:1000}") final long expireAfterWriteMillis) {
+        this.availabilityService = availabilityService;
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public List<Integer> availableRoomIds(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        return get(new Key(Query.ROOM_IDS, fromDate, toDate, page, limit, ReadContext.readYourWrites()), () ->
+                Collections.unmodifiableList(availabilityService.availableRoomIds(fromDate, toDate, page, limit)));
+    }
+
+    public List<Room> availableRooms(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        return get(new Key(Query.ROOMS, fromDate, toDate, page, limit, ReadContext.readYourWrites()), () ->
+                Collections.unmodifiableList(availabilityService.availableRooms(fromDate, toDate, page, limit)));
+    }
+
+    public long countAvailable(final Instant fromDate, final Instant toDate) {
+        return get(new Key(Query.COUNT, fromDate, toDate, 0, 0, ReadContext.readYourWrites()), () ->
+                availabilityService.countAvailable(fromDate, toDate));
+    }
+
+    /**
+     * Drops the answers for date ranges that share a night with {@code [startDate, endDate)}. Ranges are widened by
+     * a night on each side, so answers computed at night granularity are covered whatever the time of day.
+     */
+    public void invalidate(final Instant startDate, final Instant endDate) {
+        final Instant from = startDate.minus(NIGHT);
+        final Instant to = endDate.plus(NIGHT);
+        inFlight.forEach((key, flight) -> {
+            if (key.overlaps(from, to)) {
+                flight.stale = true;
+                inFlight.remove(key, flight);
+            }
+        });
+        results.asMap().keySet().removeIf(key -> key.overlaps(from, to));
+    }
+
+    public void invalidateAll() {
+        inFlight.forEach((key, flight) -> {
+            flight.stale = true;
+            inFlight.remove(key, flight);
+        });
+        results.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        this.registry = registry;
+        GuavaCacheMetrics.monitor(registry, results, "availability");
+    }
+
+    /**
+     * The answer is cached before the flight checks whether it went stale, and {@link #invalidate} marks flights
+     * before it drops cached answers, so a stale answer never outlives the invalidation.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(final Key key, final Supplier<T> query) {
+        if (key.fromDate == null || key.toDate == null) {
+            return query.get();
+        }
+        final Object cached = results.getIfPresent(key);
+        if (cached != null) {
+            count("hit");
+            return (T) cached;
+        }
+        final Flight flight = new Flight();
+        final Flight running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            count("coalesced");
+            return (T) ExecutionMode.join(running.answer);
+        }
+        count("miss");
+        try {
+            final T answer = query.get();
+            results.put(key, answer);
+            if (flight.stale) {
+                results.invalidate(key);
+            }
+            flight.answer.complete(answer);
+            return answer;
+        } catch (RuntimeException e) {
+            flight.answer.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private void count(final String outcome) {
+        final MeterRegistry meters = registry;
+        if (meters != null) {
+            Counter.builder("hotel.availability.cache")
+                    .tag("outcome", outcome)
+                    .register(meters)
+                    .increment();
+        }
+    }
+
+    private enum Query {
+        ROOM_IDS,
+        ROOMS,
+        COUNT
+    }
+
+    @lombok.Value
+    private static class Key {
+        Query query;
+        Instant fromDate;
+        Instant toDate;
+        int page;
+        int limit;
+        boolean readYourWrites;
+
+        boolean overlaps(final Instant from, final Instant to) {
+            return fromDate.isBefore(to) && from.isBefore(toDate);
+        }
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Object> answer = new CompletableFuture<>();
+        private volatile boolean stale;
+    }
+}
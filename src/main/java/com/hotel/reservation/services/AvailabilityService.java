@@ -0,0 +1,111 @@
+package com.hotel.reservation.services;
+
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Answers availability from the {@link OccupancyIndex} when both bounds of the window are at the start of a day.
+ * Windows that start before the indexed nights or at another time of day are answered by the exact time overlap
+ * query instead, which runs on all shards in parallel. Room ids of a shard are above those of the shards before it,
+ * so concatenating the id ordered results of the shards keeps them in id order.
+ */
+@Service
+@AllArgsConstructor
+public class AvailabilityService {
+
+    public static final int MAX_AVAILABILITY_LIMIT = 1000;
+
+    /**
+     * Highest page for which {@code (page + 1) * limit} still fits in an int.
+     */
+    public static final int MAX_PAGE = Integer.MAX_VALUE / MAX_AVAILABILITY_LIMIT - 1;
+
+    private final RoomRepository roomRepository;
+    private final OccupancyIndex occupancyIndex;
+    private final ShardRouter shardRouter;
+
+    public List<Integer> availableRoomIds(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        validatePage(page, limit);
+        final int pageSize = Math.min(limit, MAX_AVAILABILITY_LIMIT);
+        if (occupancyIndex.covers(fromDate, toDate)) {
+            return occupancyIndex.freeRooms(fromDate, toDate, page * pageSize, pageSize);
+        }
+        if (shardRouter.shardCount() == 1) {
+            return ids(roomRepository.findAvailable(fromDate, toDate, PageRequest.of(page, pageSize, Sort.by("id"))));
+        }
+        return shardRouter.fanOut(shard ->
+                        ids(roomRepository.findAvailable(fromDate, toDate, PageRequest.of(0, (page + 1) * pageSize, Sort.by("id")))))
+                .stream()
+                .flatMap(List::stream)
+                .skip((long) page * pageSize)
+                .limit(pageSize)
+                .collect(Collectors.toList());
+    }
+
+    public List<Room> availableRooms(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        return roomsInOrder(availableRoomIds(fromDate, toDate, page, limit));
+    }
+
+    /**
+     * Keyset page of free rooms in id order starting after {@code afterRoomId}.
+     */
+    public List<Room> availableRoomsAfter(final Instant fromDate, final Instant toDate, final int afterRoomId, final int limit) {
+        final Optional<List<Integer>> indexed = occupancyIndex.covers(fromDate, toDate)
+                ? occupancyIndex.freeRoomsAfter(fromDate, toDate, afterRoomId, limit)
+                : Optional.empty();
+        return roomsInOrder(indexed.orElseGet(() -> shardRouter.fanOut(shard ->
+                        roomRepository.findAvailableIdsAfter(fromDate, toDate, afterRoomId, PageRequest.of(0, limit)))
+                .stream()
+                .flatMap(List::stream)
+                .limit(limit)
+                .collect(Collectors.toList())));
+    }
+
+    public long countAvailable(final Instant fromDate, final Instant toDate) {
+        if (occupancyIndex.covers(fromDate, toDate)) {
+            return occupancyIndex.countFree(fromDate, toDate);
+        }
+        return shardRouter.fanOut(shard -> roomRepository.countAvailable(fromDate, toDate)).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Rejects pages {@code PageRequest} would refuse and pages whose fan-out window would overflow.
+     */
+    public static void validatePage(final int page, final int limit) {
+        if (page < 0 || page > MAX_PAGE) {
+            throw new ReservationException(format("Page must be between 0 and %d", MAX_PAGE));
+        }
+        if (limit < 1) {
+            throw new ReservationException("Limit must be at least 1");
+        }
+    }
+
+    private List<Room> roomsInOrder(final List<Integer> roomIds) {
+        final Map<Integer, Room> rooms = new HashMap<>();
+        shardRouter.byShard(roomIds).forEach((shard, ids) -> shardRouter.run(shard, () ->
+                roomRepository.findAllById(ids).forEach(room -> rooms.put(room.getId(), room))));
+        return roomIds.stream()
+                .map(rooms::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(final List<Room> rooms) {
+        return rooms.stream().map(Room::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,301 @@
+package com.hotel.reservation.services;
+
+import com.google.common.util.concurrent.Striped;
+import com.hotel.reservation.dto.ReservationRequest;
+import com.hotel.reservation.dto.ReservationResult;
+import com.hotel.reservation.exceptions.ReservationCollisionException;
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.exceptions.RoomNotFoundException;
+import com.hotel.reservation.exceptions.UserNotFoundException;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.index.RoomIntervals;
+import com.hotel.reservation.journal.JournalEntry;
+import com.hotel.reservation.journal.ReservationJournal;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Serializes reservation writes per room. Within a node bookings of the same room wait on a striped lock,
+ * across nodes the room row is locked with {@code SELECT ... FOR UPDATE} and its version is bumped, so the
+ * overlap query below always sees committed reservations of the other nodes. Unrelated rooms book in parallel.
+ */
+@Component
+@AllArgsConstructor
+public class BookingEngine {
+
+    private static final int LOCK_STRIPES = 256;
+    private static final String COLLISION_MESSAGE = "This reservation collides with reservation with ID: %s";
+    private static final String PENDING_COLLISION_MESSAGE = "This reservation collides with a reservation that is being saved";
+
+    private final RoomRepository roomRepository;
+    private final ReservationRepository reservationRepository;
+    private final ReservationIntervalIndex reservationIntervalIndex;
+    private final OccupancyIndex occupancyIndex;
+    private final ReservationJournal reservationJournal;
+    private final TransactionTemplate transactionTemplate;
+    private final HotelMetrics hotelMetrics;
+    private final OccupancyAggregates occupancyAggregates;
+
+    private final Striped<Lock> roomLocks = Striped.lock(LOCK_STRIPES);
+
+    /**
+     * The user may still be loading while the room is locked and checked against the index. It is awaited before
+     * the transaction opens, so no connection is held while the lookup waits for one of its own on a full pool.
+     * A lookup that has already failed is reported before the room is touched.
+     */
+    public Reservation book(final CompletableFuture<User> user, final int roomId, final Instant startDate, final Instant endDate) {
+        if (user.isCompletedExceptionally()) {
+            ExecutionMode.join(user);
+        }
+        occupancyAggregates.prepare(startDate, endDate);
+        final Lock lock = roomLocks.get(roomId);
+        lock.lock();
+        try {
+            hotelMetrics.phase("collisionCheck", () -> reservationIntervalIndex.findCollision(roomId, startDate.toEpochMilli(), endDate.toEpochMilli()))
+                    .ifPresent(BookingEngine::collision);
+            final User reservationUser = hotelMetrics.phase("awaitUser", () -> ExecutionMode.join(user));
+            final Reservation reservation = transactionTemplate.execute(status -> {
+                final Room room = hotelMetrics.phase("lockRoom", () -> roomRepository.findByIdForUpdate(roomId))
+                        .orElseThrow(() -> new RoomNotFoundException(roomId));
+                hotelMetrics.phase("collisionCheck", () -> reservationRepository.findFirstByRoomIdAndStartDateBeforeAndEndDateAfter(roomId, endDate, startDate))
+                        .ifPresent(existing -> collision(existing.getId()));
+                final Reservation saved = hotelMetrics.phase("save", () -> reservationRepository.save(Reservation.builder()
+                        .room(room)
+                        .startDate(startDate)
+                        .endDate(endDate)
+                        .user(reservationUser)
+                        .build()));
+                occupancyAggregates.booked(startDate, endDate);
+                return saved;
+            });
+            indexReservation(reservation);
+            return reservation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether a booking starting at {@code startDate} can be confirmed by {@link #confirm}: the journal is enabled
+     * and every reservation it could collide with is in the interval index.
+     */
+    public boolean canConfirm(final Instant startDate) {
+        return reservationJournal.isEnabled() && reservationIntervalIndex.covers(startDate.toEpochMilli());
+    }
+
+    /**
+     * Write-behind booking: checks the interval index under the room lock, appends the booking to the journal and
+     * indexes it under its pending id, then waits for the group commit outside the lock. The database insert is
+     * left to the journal flusher.
+     */
+    public void confirm(final String login, final int roomId, final Instant startDate, final Instant endDate) {
+        if (!occupancyIndex.containsRoom(roomId)) {
+            throw new RoomNotFoundException(roomId);
+        }
+        final long start = startDate.toEpochMilli();
+        final long end = endDate.toEpochMilli();
+        final JournalEntry entry;
+        final Lock lock = roomLocks.get(roomId);
+        lock.lock();
+        try {
+            hotelMetrics.phase("collisionCheck", () -> reservationIntervalIndex.findCollision(roomId, start, end))
+                    .ifPresent(BookingEngine::collision);
+            entry = hotelMetrics.phase("journalAppend", () -> reservationJournal.append(roomId, login, startDate, endDate));
+            reservationIntervalIndex.add(roomId, entry.pendingId(), start, end);
+            occupancyIndex.occupy(roomId, startDate, endDate);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            hotelMetrics.phase("journalSync", () -> reservationJournal.awaitDurable(entry));
+        } catch (RuntimeException e) {
+            reservationIntervalIndex.remove(roomId, entry.pendingId());
+            occupancyIndex.release(roomId, startDate, endDate);
+            throw e;
+        }
+    }
+
+    /**
+     * Books the whole batch in one transaction. Rooms are locked in a stable order, existing reservations of
+     * the batch rooms are fetched with a single windowed query and every request is checked against them and
+     * against the requests accepted before it. Returns one result per request in request order, {@code indexes}
+     * holds the position of each request in the client's batch.
+     */
+    public List<ReservationResult> bookAll(final List<ReservationRequest> requests, final List<Integer> indexes,
+                                           final Map<String, User> users) {
+        final Set<Integer> roomIds = requests.stream()
+                .map(ReservationRequest::getRoomId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+        prepareOccupancy(requests);
+        final List<Lock> locks = new ArrayList<>();
+        roomLocks.bulkGet(roomIds).forEach(locks::add);
+        locks.forEach(Lock::lock);
+        try {
+            reservationJournal.drain();
+            final List<Reservation> accepted = new ArrayList<>();
+            final List<String> outcomes = new ArrayList<>(requests.size());
+            final List<ReservationResult> results;
+            try {
+                results = transactionTemplate.execute(status -> {
+                    final Map<Integer, Room> rooms = roomIds.isEmpty() ? Collections.emptyMap() :
+                            roomRepository.findAllByIdForUpdate(roomIds).stream()
+                                    .collect(Collectors.toMap(Room::getId, Function.identity()));
+                    final Map<Integer, RoomIntervals> intervals = existingIntervals(requests, rooms.keySet());
+                    final List<ReservationResult> batchResults = new ArrayList<>(requests.size());
+                    final List<Integer> acceptedIndexes = new ArrayList<>();
+                    for (int i = 0; i < requests.size(); i++) {
+                        final ReservationRequest request = requests.get(i);
+                        final int index = indexes.get(i);
+                        final Optional<RuntimeException> error = validate(request, users, rooms, intervals);
+                        outcomes.add(HotelMetrics.outcomeOf(error.orElse(null)));
+                        if (error.isPresent()) {
+                            batchResults.add(ReservationResult.rejected(index, error.get().getMessage()));
+                            continue;
+                        }
+                        intervals.computeIfAbsent(request.getRoomId(), roomId -> new RoomIntervals())
+                                .add(-(index + 1), request.getStartDate().toEpochMilli(), request.getEndDate().toEpochMilli());
+                        accepted.add(Reservation.builder()
+                                .room(rooms.get(request.getRoomId()))
+                                .startDate(request.getStartDate())
+                                .endDate(request.getEndDate())
+                                .user(users.get(request.getLogin()))
+                                .build());
+                        acceptedIndexes.add(i);
+                        batchResults.add(null);
+                    }
+                    reservationRepository.saveAll(accepted);
+                    occupancyAggregates.booked(accepted);
+                    for (int i = 0; i < accepted.size(); i++) {
+                        final int position = acceptedIndexes.get(i);
+                        batchResults.set(position, ReservationResult.accepted(indexes.get(position), accepted.get(i).getId()));
+                    }
+                    return batchResults;
+                });
+            } catch (RuntimeException e) {
+                final String outcome = HotelMetrics.outcomeOf(e);
+                requests.forEach(request -> hotelMetrics.booking(outcome));
+                throw e;
+            }
+            outcomes.forEach(hotelMetrics::booking);
+            accepted.forEach(this::indexReservation);
+            return results;
+        } finally {
+            locks.forEach(Lock::unlock);
+        }
+    }
+
+    public void cancel(final ReservationInterval reservation) {
+        final Lock lock = roomLocks.get(reservation.getRoomId());
+        lock.lock();
+        try {
+            transactionTemplate.execute(status -> {
+                reservationRepository.deleteById(reservation.getId());
+                occupancyAggregates.cancelled(reservation.getStartDate(), reservation.getEndDate());
+                return null;
+            });
+            reservationIntervalIndex.remove(reservation.getRoomId(), reservation.getId());
+            occupancyIndex.release(reservation.getRoomId(), reservation.getStartDate(), reservation.getEndDate());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static Optional<String> validateDates(final Instant startDate, final Instant endDate) {
+        final long end = endDate.toEpochMilli();
+        if (startDate.toEpochMilli() > end) {
+            return Optional.of("Start date of reservation cannot be after end date");
+        }
+        if (end < System.currentTimeMillis()) {
+            return Optional.of("End date of reservation cannot be in the past");
+        }
+        return Optional.empty();
+    }
+
+    private void indexReservation(final Reservation reservation) {
+        reservationIntervalIndex.add(reservation);
+        occupancyIndex.occupy(reservation.getRoom().getId(), reservation.getStartDate(), reservation.getEndDate());
+    }
+
+    /**
+     * Creates the occupancy rows spanning the stays of the batch that can be booked at all.
+     */
+    private void prepareOccupancy(final List<ReservationRequest> requests) {
+        final List<ReservationRequest> dated = requests.stream()
+                .filter(request -> request.getStartDate() != null && request.getEndDate() != null
+                        && !validateDates(request.getStartDate(), request.getEndDate()).isPresent())
+                .collect(Collectors.toList());
+        if (dated.isEmpty()) {
+            return;
+        }
+        occupancyAggregates.prepare(
+                dated.stream().map(ReservationRequest::getStartDate).min(Comparator.naturalOrder()).get(),
+                dated.stream().map(ReservationRequest::getEndDate).max(Comparator.naturalOrder()).get());
+    }
+
+    private Map<Integer, RoomIntervals> existingIntervals(final List<ReservationRequest> requests, final Set<Integer> roomIds) {
+        final Map<Integer, RoomIntervals> intervals = new HashMap<>();
+        final long from = requests.stream().map(ReservationRequest::getStartDate).filter(Objects::nonNull)
+                .mapToLong(Instant::toEpochMilli).min().orElse(Long.MAX_VALUE);
+        final long to = requests.stream().map(ReservationRequest::getEndDate).filter(Objects::nonNull)
+                .mapToLong(Instant::toEpochMilli).max().orElse(Long.MIN_VALUE);
+        if (roomIds.isEmpty() || from >= to) {
+            return intervals;
+        }
+        for (ReservationInterval existing : reservationRepository.findIntervalsOverlapping(roomIds, Instant.ofEpochMilli(from), Instant.ofEpochMilli(to))) {
+            intervals.computeIfAbsent(existing.getRoomId(), roomId -> new RoomIntervals())
+                    .add(existing.getId(), existing.getStartDate().toEpochMilli(), existing.getEndDate().toEpochMilli());
+        }
+        return intervals;
+    }
+
+    private static Optional<RuntimeException> validate(final ReservationRequest request, final Map<String, User> users,
+                                                       final Map<Integer, Room> rooms, final Map<Integer, RoomIntervals> intervals) {
+        if (request.getStartDate() == null || request.getEndDate() == null) {
+            return Optional.of(new ReservationException("Start and end date of reservation are required"));
+        }
+        final Optional<String> dateError = validateDates(request.getStartDate(), request.getEndDate());
+        if (dateError.isPresent()) {
+            return Optional.of(new ReservationException(dateError.get()));
+        }
+        if (!users.containsKey(request.getLogin())) {
+            return Optional.of(new UserNotFoundException(format("Reservation user with login %s not found", request.getLogin())));
+        }
+        if (!rooms.containsKey(request.getRoomId())) {
+            return Optional.of(new RoomNotFoundException(request.getRoomId()));
+        }
+        final RoomIntervals roomIntervals = intervals.get(request.getRoomId());
+        final int collision = roomIntervals == null ? RoomIntervals.NONE :
+                roomIntervals.findOverlapping(request.getStartDate().toEpochMilli(), request.getEndDate().toEpochMilli());
+        if (collision == RoomIntervals.NONE) {
+            return Optional.empty();
+        }
+        return Optional.of(new ReservationCollisionException(collision < 0
+                ? format("This reservation collides with reservation at index %d of the batch", -collision - 1)
+                : format(COLLISION_MESSAGE, collision)));
+    }
+
+    private static void collision(final Integer reservationId) {
+        if (reservationId < 0) {
+            throw new ReservationCollisionException(PENDING_COLLISION_MESSAGE);
+        }
+        throw new ReservationCollisionException(format(COLLISION_MESSAGE, reservationId));
+    }
+}
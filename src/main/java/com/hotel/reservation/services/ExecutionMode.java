@@ -0,0 +1,80 @@
+package com.hotel.reservation.services;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hotel.reservation.replica.ReadContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Decides where independent lookups run. In the default blocking mode {@link #supply(Supplier)} runs the lookup on
+ * the calling thread and returns a completed future, so behaviour is the same as calling it directly. With
+ * {@code hotel.execution.async=true} lookups run on a bounded pool, GraphQL root fields and batch loads of one level
+ * proceed concurrently and the reservation user is looked up while the room is being locked. Pool metrics are
+ * published as {@code executor.*} meters tagged {@code name=hotelLookups}. Pooled lookups keep the replica routing
+ * of the thread that submitted them.
+ */
+@Component
+public class ExecutionMode implements MeterBinder {
+
+    private final boolean async;
+    private final ExecutorService executor;
+
+    public ExecutionMode(@Value("${hotel.execution.async:false}") final boolean async,
+                         @Value("${hotel.execution.pool-size:64}") final int poolSize,
+                         @Value("${hotel.execution.queue-capacity:10000}") final int queueCapacity) {
+        this.async = async;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("hotel-lookup-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public <T> CompletableFuture<T> supply(final Supplier<T> lookup) {
+        if (async) {
+            return CompletableFuture.supplyAsync(ReadContext.propagate(lookup), executor);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            result.complete(lookup.get());
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the lookup and rethrows its failure as is rather than wrapped in a {@link CompletionException}.
+     */
+    public static <T> T join(final CompletableFuture<T> lookup) {
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "hotelLookups", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
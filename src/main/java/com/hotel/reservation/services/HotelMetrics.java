@@ -0,0 +1,106 @@
+package com.hotel.reservation.services;
+
+import com.hotel.reservation.exceptions.*;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service level meters. Outcomes follow the status groups of {@code RestResponseExceptionHandler},
+ * with collisions split out of the bad request group.
+ */
+@Component
+public class HotelMetrics {
+
+    public static final String SUCCESS = "success";
+    public static final String COLLISION = "collision";
+    public static final String BAD_REQUEST = "bad_request";
+    public static final String NOT_FOUND = "not_found";
+    public static final String UNAUTHORIZED = "unauthorized";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+
+    public HotelMetrics(final MeterRegistry meterRegistry, final RoomRepository roomRepository,
+                        final ReservationRepository reservationRepository, final ShardRouter shardRouter) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("hotel.rooms", roomRepository, repository -> shardRouter.fanOut(shard -> repository.count())
+                        .stream().mapToLong(Long::longValue).sum())
+                .description("Number of rooms")
+                .register(meterRegistry);
+        Gauge.builder("hotel.reservations.active", reservationRepository, repository -> shardRouter.fanOut(shard ->
+                        repository.countByEndDateAfter(Instant.now())).stream().mapToLong(Long::longValue).sum())
+                .description("Number of reservations that have not ended yet")
+                .register(meterRegistry);
+    }
+
+    public static String outcomeOf(final Throwable error) {
+        if (error == null) {
+            return SUCCESS;
+        }
+        if (error instanceof ReservationCollisionException) {
+            return COLLISION;
+        }
+        if (error instanceof ReservationException || error instanceof UserAlreadyExistException) {
+            return BAD_REQUEST;
+        }
+        if (error instanceof ReservationNotFoundException || error instanceof RoomNotFoundException
+                || error instanceof UserNotFoundException) {
+            return NOT_FOUND;
+        }
+        if (error instanceof UserNotPermittedToPerformThisOperationException) {
+            return UNAUTHORIZED;
+        }
+        return ERROR;
+    }
+
+    public <T> T time(final String operation, final Supplier<T> supplier) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        Throwable error = null;
+        try {
+            return supplier.get();
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("hotel.operations")
+                    .tag("operation", operation)
+                    .tag("outcome", outcomeOf(error))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    public void timeRun(final String operation, final Runnable runnable) {
+        time(operation, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public <T> T phase(final String phase, final Supplier<T> supplier) {
+        return phaseTimers.computeIfAbsent(phase, name -> Timer.builder("hotel.booking.phase")
+                .tag("phase", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry))
+                .record(supplier);
+    }
+
+    public void booking(final String outcome) {
+        Counter.builder("hotel.bookings")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
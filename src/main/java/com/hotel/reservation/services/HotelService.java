@@ -1,104 +1,381 @@
 package com.hotel.reservation.services;
 
+import com.google.common.collect.Lists;
 import com.hotel.reservation.Role;
+import com.hotel.reservation.dto.IdRange;
+import com.hotel.reservation.dto.OccupancyNight;
+import com.hotel.reservation.dto.ReservationRequest;
+import com.hotel.reservation.dto.ReservationResult;
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.dto.RoomSpec;
 import com.hotel.reservation.exceptions.*;
+import com.hotel.reservation.feed.ReservationEvent;
+import com.hotel.reservation.feed.ReservationFeed;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.journal.ReservationJournal;
 import com.hotel.reservation.model.Reservation;
 import com.hotel.reservation.model.Room;
 import com.hotel.reservation.model.User;
+import com.hotel.reservation.replica.ReadContext;
+import com.hotel.reservation.repository.ReservationInterval;
 import com.hotel.reservation.repository.ReservationRepository;
 import com.hotel.reservation.repository.RoomRepository;
 import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.shard.ShardRouter;
 import lombok.AllArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Date;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static com.hotel.reservation.services.AvailabilityService.MAX_AVAILABILITY_LIMIT;
 import static java.lang.String.format;
 
 @Service
 @AllArgsConstructor
 public class HotelService {
 
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int MAX_BULK_ROOMS = 10000;
+
+    private static final int BULK_DELETE_CHUNK_SIZE = 1000;
+
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
     private final ReservationRepository reservationRepository;
+    private final ReservationIntervalIndex reservationIntervalIndex;
+    private final BookingEngine bookingEngine;
+    private final UserRoleCache userRoleCache;
+    private final HotelMetrics hotelMetrics;
+    private final OccupancyIndex occupancyIndex;
+    private final AvailabilityCache availabilityCache;
+    private final ExecutionMode executionMode;
+    private final ReservationJournal reservationJournal;
+    private final ReservationExport reservationExport;
+    private final ShardRouter shardRouter;
+    private final OccupancyAggregates occupancyAggregates;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationFeed reservationFeed;
 
     public void createUser(final String login, final Role role) {
-        final User newUser = User.builder().login(login).role(role).build();
-        if (userRepository.findByLogin(login).isPresent()) {
-            throw new UserAlreadyExistException(format("User with login: %s already exist", login));
-        }
-        userRepository.save(newUser);
+        hotelMetrics.timeRun("createUser", () -> {
+            final User newUser = User.builder().login(login).role(role).build();
+            if (userRepository.findByLogin(login).isPresent()) {
+                throw new UserAlreadyExistException(format("User with login: %s already exist", login));
+            }
+            final int userId = userRepository.save(newUser).getId();
+            for (int shard = 1; shard < shardRouter.shardCount(); shard++) {
+                shardRouter.run(shard, () -> userRepository.save(User.builder().id(userId).login(login).role(role).build()));
+            }
+            userRoleCache.invalidate(login);
+        });
     }
 
     public Integer addRoom(final String login) {
-        isAdminRole(login);
-        return roomRepository.save(Room.builder().build()).getId();
+        return addRoom(login, new RoomSpec());
     }
 
-    public void reserveRoomAdmin(final String login, final int roomId, final String reservationLogin, final Date startDate, final Date endDate) {
-        isAdminRole(login);
-        reservationForUser(startDate, endDate, reservationLogin, roomId);
+    public Integer addRoom(final String login, final RoomSpec spec) {
+        return hotelMetrics.time("addRoom", () -> {
+            isAdminRole(login);
+            final Integer roomId = shardRouter.on(shardRouter.shardOfHotel(spec.getHotelId()), () ->
+                    roomRepository.save(room(spec))).getId();
+            occupancyIndex.addRoom(roomId);
+            availabilityCache.invalidateAll();
+            return roomId;
+        });
     }
 
-    public void reserveRoom(final String login, final int roomId, final Date startDate, final Date endDate) {
-        reservationForUser(startDate, endDate, login, roomId);
+    public List<IdRange> addRooms(final String login, final int count) {
+        if (count < 0) {
+            throw new ReservationException("Number of rooms cannot be negative");
+        }
+        return addRooms(login, Collections.nCopies(count, new RoomSpec()));
+    }
+
+    /**
+     * Adds the rooms of each shard in one transaction. Ids come from the pooled sequence, one sequence call per
+     * block of ids, and inserts go out in JDBC batches of {@code hibernate.jdbc.batch_size}.
+     *
+     * @return the ids of the new rooms as ascending ranges
+     */
+    public List<IdRange> addRooms(final String login, final List<RoomSpec> specs) {
+        return hotelMetrics.time("addRooms", () -> {
+            isAdminRole(login);
+            if (specs.size() > MAX_BULK_ROOMS) {
+                throw new ReservationException(format("Cannot add more than %d rooms at once", MAX_BULK_ROOMS));
+            }
+            final List<Integer> roomIds = new ArrayList<>(specs.size());
+            specs.stream()
+                    .collect(Collectors.groupingBy(spec -> shardRouter.shardOfHotel(spec.getHotelId()), TreeMap::new, Collectors.toList()))
+                    .forEach((shard, shardSpecs) -> shardRouter.run(shard, () -> transactionTemplate.execute(status -> {
+                        final List<Room> rooms = shardSpecs.stream().map(HotelService::room).collect(Collectors.toList());
+                        roomRepository.saveAll(rooms).forEach(room -> roomIds.add(room.getId()));
+                        return null;
+                    })));
+            Collections.sort(roomIds);
+            roomIds.forEach(occupancyIndex::addRoom);
+            availabilityCache.invalidateAll();
+            return IdRange.of(roomIds);
+        });
+    }
+
+    public void reserveRoomAdmin(final String login, final int roomId, final String reservationLogin, final Instant startDate, final Instant endDate) {
+        hotelMetrics.timeRun("reserveRoomAdmin", () -> {
+            isAdminRole(login);
+            shardRouter.run(shardRouter.shardOf(roomId), () -> reservationForUser(startDate, endDate, reservationLogin, roomId));
+        });
+    }
+
+    public void reserveRoom(final String login, final int roomId, final Instant startDate, final Instant endDate) {
+        hotelMetrics.timeRun("reserveRoom", () ->
+                shardRouter.run(shardRouter.shardOf(roomId), () -> reservationForUser(startDate, endDate, login, roomId)));
+    }
+
+    public List<ReservationResult> reserveRooms(final String login, final List<ReservationRequest> requests) {
+        return hotelMetrics.time("reserveRooms", () -> {
+            isAdminRole(login);
+            if (requests.size() > MAX_BATCH_SIZE) {
+                throw new ReservationException(format("Batch cannot contain more than %d reservations", MAX_BATCH_SIZE));
+            }
+            final Set<String> logins = requests.stream()
+                    .map(ReservationRequest::getLogin)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            final Map<String, User> users = logins.isEmpty() ? Collections.emptyMap() :
+                    userRepository.findByLoginIn(logins).stream()
+                            .collect(Collectors.toMap(User::getLogin, Function.identity()));
+            return bookAcrossShards(requests, users);
+        });
     }
 
     public void deleteRoom(final String login, final int roomId) {
-        isAdminRole(login);
-        final Room room = roomRepository.findById(roomId).orElseThrow(() -> new RoomNotFoundException(roomId));
-        roomRepository.delete(room);
+        hotelMetrics.timeRun("deleteRoom", () -> {
+            isAdminRole(login);
+            reservationJournal.drain();
+            final List<ReservationInterval> reservations = shardRouter.on(shardRouter.shardOf(roomId), () ->
+                    transactionTemplate.execute(status -> {
+                        final Room room = roomRepository.findAllByIdForUpdate(Collections.singletonList(roomId)).stream()
+                                .findFirst()
+                                .orElseThrow(() -> new RoomNotFoundException(roomId));
+                        final List<ReservationInterval> intervals =
+                                reservationRepository.findIntervalsByRoomIdIn(Collections.singletonList(roomId));
+                        reservationRepository.deleteByRoomIdIn(Collections.singletonList(roomId));
+                        roomRepository.delete(room);
+                        occupancyAggregates.cancelled(intervals);
+                        return intervals;
+                    }));
+            reservations.forEach(this::publishCancelled);
+            reservationIntervalIndex.removeRoom(roomId);
+            occupancyIndex.removeRoom(roomId);
+            availabilityCache.invalidateAll();
+        });
     }
 
 
+    /**
+     * Deletes the rooms and their reservations with set based statements, in chunks of
+     * {@value #BULK_DELETE_CHUNK_SIZE} rooms per shard. The rooms are locked first, so no booking can slip in
+     * between reading the reservations for the occupancy totals and deleting them. Unknown ids are skipped.
+     *
+     * @return the number of deleted rooms
+     */
+    public int deleteRooms(final String login, final Collection<Integer> roomIds) {
+        return hotelMetrics.time("deleteRooms", () -> {
+            isAdminRole(login);
+            if (roomIds.size() > MAX_BULK_ROOMS) {
+                throw new ReservationException(format("Cannot delete more than %d rooms at once", MAX_BULK_ROOMS));
+            }
+            reservationJournal.drain();
+            final List<Integer> deleted = new ArrayList<>();
+            shardRouter.byShard(new TreeSet<>(roomIds)).forEach((shard, ids) -> shardRouter.run(shard, () -> {
+                final List<ReservationInterval> reservations = new ArrayList<>();
+                transactionTemplate.execute(status -> {
+                    for (List<Integer> chunk : Lists.partition(ids, BULK_DELETE_CHUNK_SIZE)) {
+                        final List<Integer> existing = roomRepository.findAllByIdForUpdate(chunk).stream()
+                                .map(Room::getId)
+                                .collect(Collectors.toList());
+                        if (existing.isEmpty()) {
+                            continue;
+                        }
+                        reservations.addAll(reservationRepository.findIntervalsByRoomIdIn(existing));
+                        reservationRepository.deleteByRoomIdIn(existing);
+                        roomRepository.deleteAmenitiesByRoomIdIn(existing);
+                        roomRepository.deleteByIdIn(existing);
+                        deleted.addAll(existing);
+                    }
+                    occupancyAggregates.cancelled(reservations);
+                    return null;
+                });
+                reservations.forEach(this::publishCancelled);
+            }));
+            for (int roomId : deleted) {
+                reservationIntervalIndex.removeRoom(roomId);
+                occupancyIndex.removeRoom(roomId);
+            }
+            availabilityCache.invalidateAll();
+            return deleted.size();
+        });
+    }
+
     public void deleteReservation(final String login, final int reservationId) {
+        hotelMetrics.timeRun("deleteReservation", () -> {
+            isAdminRole(login);
+            reservationJournal.drain();
+            shardRouter.run(shardRouter.shardOf(reservationId), () -> {
+                final ReservationInterval reservation = reservationRepository.findIntervalById(reservationId).orElseThrow(() ->
+                        new ReservationNotFoundException(String.format("Reservation with ID: %d not found", reservationId)));
+                bookingEngine.cancel(reservation);
+                availabilityCache.invalidate(reservation.getStartDate(), reservation.getEndDate());
+                publishCancelled(reservation);
+            });
+        });
+    }
+
+    public List<Integer> availableRoomIds(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        return hotelMetrics.time("availability", () -> ReadContext.readOnly(() ->
+                availabilityCache.availableRoomIds(fromDate, toDate, page, limit)));
+    }
+
+    public long countAvailableRooms(final Instant fromDate, final Instant toDate) {
+        return hotelMetrics.time("availabilityCount", () -> ReadContext.readOnly(() ->
+                availabilityCache.countAvailable(fromDate, toDate)));
+    }
+
+    /**
+     * A search for one hotel runs on its shard. Otherwise every shard returns its first {@code (page + 1) * limit}
+     * matches in parallel and the requested page is cut from the merged result. Searches read from a replica.
+     *
+     * @param priceOrder sorts by price per night when set, otherwise rooms are returned in id order
+     */
+    public List<Room> searchRooms(final RoomSearch search, final Sort.Direction priceOrder, final int page, final int limit) {
+        return hotelMetrics.time("roomSearch", () -> ReadContext.readOnly(() -> {
+            AvailabilityService.validatePage(page, limit);
+            final int pageSize = Math.min(limit, MAX_AVAILABILITY_LIMIT);
+            final Sort sort = priceOrder == null ? Sort.by("id") : Sort.by(priceOrder, "pricePerNight").and(Sort.by("id"));
+            if (search.getHotelId() != null || shardRouter.shardCount() == 1) {
+                return shardRouter.on(shardRouter.shardOfHotel(search.getHotelId()), () ->
+                        roomRepository.search(search, PageRequest.of(page, pageSize, sort)));
+            }
+            final Comparator<Room> order = priceOrder == null ? Comparator.comparing(Room::getId)
+                    : Comparator.comparing(Room::getPricePerNight, priceOrder.isAscending()
+                            ? Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder())
+                            : Comparator.nullsLast(Comparator.<BigDecimal>reverseOrder()))
+                    .thenComparing(Room::getId);
+            return shardRouter.fanOut(shard -> roomRepository.search(search, PageRequest.of(0, (page + 1) * pageSize, sort)))
+                    .stream()
+                    .flatMap(List::stream)
+                    .sorted(order)
+                    .skip((long) page * pageSize)
+                    .limit(pageSize)
+                    .collect(Collectors.toList());
+        }));
+    }
+
+    public List<OccupancyNight> occupancy(final Instant fromDate, final Instant toDate) {
+        return hotelMetrics.time("occupancy", () -> ReadContext.readOnly(() -> occupancyAggregates.report(fromDate, toDate)));
+    }
+
+    /**
+     * Bookings and cancellations after offset {@code after}, or from now on when it is {@code null}.
+     */
+    public Publisher<ReservationEvent> reservationEvents(final Long after) {
+        return reservationFeed.events(after);
+    }
+
+    /**
+     * Checks the permission up front, the returned writer runs later on the thread streaming the response.
+     */
+    public Consumer<OutputStream> exportReservations(final String login) {
         isAdminRole(login);
-        final Reservation reservation = reservationRepository.findById(reservationId).orElseThrow(() ->
-                new ReservationNotFoundException(String.format("Reservation with ID: %d not found", reservationId)));
-        reservationRepository.delete(reservation);
+        reservationJournal.drain();
+        return reservationExport::writeTo;
     }
 
-    private void isAdminRole(final String login) {
-        final User user = userRepository.findByLogin(login).orElseThrow(() -> new UserNotFoundException(format("User with login %s not found", login)));
-        if (user.getRole() != Role.ADMIN) {
-            throw new UserNotPermittedToPerformThisOperationException(format("User %s is not allowed to perform this operation", login));
-        }
+    /**
+     * Bookings of rooms on different shards cannot share a transaction, so each shard books its part of the batch.
+     * Collisions only happen within a room and are still checked against the whole part.
+     */
+    private List<ReservationResult> bookAcrossShards(final List<ReservationRequest> requests, final Map<String, User> users) {
+        final Map<Integer, List<Integer>> indexesByShard = IntStream.range(0, requests.size()).boxed()
+                .collect(Collectors.groupingBy(i -> {
+                    final Integer roomId = requests.get(i).getRoomId();
+                    return roomId == null ? 0 : shardRouter.shardOf(roomId);
+                }, TreeMap::new, Collectors.toList()));
+        final ReservationResult[] results = new ReservationResult[requests.size()];
+        indexesByShard.forEach((shard, indexes) -> {
+            final List<ReservationRequest> part = indexes.size() == requests.size() ? requests
+                    : indexes.stream().map(requests::get).collect(Collectors.toList());
+            shardRouter.run(shard, () -> {
+                for (ReservationResult result : bookingEngine.bookAll(part, indexes, users)) {
+                    results[result.getIndex()] = result;
+                    if (result.getReservationId() != null) {
+                        final ReservationRequest request = requests.get(result.getIndex());
+                        availabilityCache.invalidate(request.getStartDate(), request.getEndDate());
+                        reservationFeed.booked(result.getReservationId(), request.getRoomId(), request.getStartDate(), request.getEndDate());
+                    }
+                }
+            });
+        });
+        return Arrays.asList(results);
     }
 
+    private static Room room(final RoomSpec spec) {
+        return Room.builder()
+                .hotelId(spec.getHotelId())
+                .type(spec.getType())
+                .capacity(spec.getCapacity())
+                .floor(spec.getFloor())
+                .pricePerNight(spec.getPricePerNight())
+                .amenities(spec.getAmenities() == null ? new HashSet<>() : new HashSet<>(spec.getAmenities()))
+                .build();
+    }
 
-    private void reservationCollisionCheck(final Room room, final Date startDate, final Date endDate) {
-        room.getReservations().stream().filter(reservation ->
-                reservation.getStartDate().equals(startDate) ||
-                reservation.getEndDate().equals(endDate) ||
-                reservation.getStartDate().after(startDate) && reservation.getStartDate().before(endDate) ||
-                reservation.getStartDate().before(startDate) && reservation.getEndDate().after(startDate) ||
-                reservation.getStartDate().before(startDate) && reservation.getEndDate().after(endDate) ||
-                reservation.getStartDate().after(startDate) && reservation.getEndDate().before(endDate))
-                .findAny()
-                .ifPresent(reservation -> {
-                    throw new ReservationException(format("This reservation collides with reservation with ID: %s", reservation.getId()));
-                });
+    private void publishCancelled(final ReservationInterval reservation) {
+        reservationFeed.cancelled(reservation.getId(), reservation.getRoomId(), reservation.getStartDate(), reservation.getEndDate());
     }
 
-    private void reservationForUser(Date startDate, Date endDate, String reservationLogin, int roomId) {
-        if (startDate.after(endDate)) {
-            throw new ReservationException("Start date of reservation cannot be after end date");
+    private void isAdminRole(final String login) {
+        final Role role = userRoleCache.getRole(login).orElseThrow(() -> new UserNotFoundException(format("User with login %s not found", login)));
+        if (role != Role.ADMIN) {
+            throw new UserNotPermittedToPerformThisOperationException(format("User %s is not allowed to perform this operation", login));
         }
-        if (endDate.before(new Date())) {
-            throw new ReservationException("End date of reservation cannot be in the past");
+    }
+
+
+    private void reservationForUser(Instant startDate, Instant endDate, String reservationLogin, int roomId) {
+        try {
+            BookingEngine.validateDates(startDate, endDate).ifPresent(message -> {
+                throw new ReservationException(message);
+            });
+            if (bookingEngine.canConfirm(startDate)) {
+                userRoleCache.getRole(reservationLogin).orElseThrow(() ->
+                        new UserNotFoundException(format("Reservation user with login %s not found", reservationLogin)));
+                bookingEngine.confirm(reservationLogin, roomId, startDate, endDate);
+            } else {
+                final CompletableFuture<User> reservationUser = executionMode.supply(() ->
+                        hotelMetrics.phase("findUser", () -> userRepository.findByLogin(reservationLogin)).orElseThrow(() ->
+                                new UserNotFoundException(format("Reservation user with login %s not found", reservationLogin))));
+                final Reservation reservation = bookingEngine.book(reservationUser, roomId, startDate, endDate);
+                reservationFeed.booked(reservation.getId(), roomId, startDate, endDate);
+            }
+            hotelMetrics.booking(HotelMetrics.SUCCESS);
+            availabilityCache.invalidate(startDate, endDate);
+        } catch (RuntimeException e) {
+            hotelMetrics.booking(HotelMetrics.outcomeOf(e));
+            throw e;
         }
-        final User reservationUser = userRepository.findByLogin(reservationLogin).orElseThrow(() ->
-                new UserNotFoundException(format("Reservation user with login %s not found", reservationLogin)));
-
-        final Room room = roomRepository.findById(roomId).orElseThrow(() -> new RoomNotFoundException(roomId));
-        reservationCollisionCheck(room, startDate, endDate);
-        final Reservation reservation = Reservation.builder()
-                .room(room)
-                .startDate(startDate)
-                .endDate(endDate)
-                .user(reservationUser)
-                .build();
-        reservationRepository.save(reservation);
     }
 }
@@ -0,0 +1,222 @@
+package com.hotel.reservation.services;
+
+import com.hotel.reservation.dto.OccupancyNight;
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.model.Backfill;
+import com.hotel.reservation.model.NightOccupancy;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.repository.BackfillRepository;
+import com.hotel.reservation.repository.NightOccupancyRepository;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Per night totals of booked rooms, arrivals and departures, maintained incrementally in {@link NightOccupancy}
+ * rows of each shard as reservations are saved and deleted, so a report over a range of nights is a primary key
+ * range scan per shard. Nights are days in the system time zone, a reservation occupies the nights from its start
+ * day up to, but excluding, its end day. Free rooms are the current room count minus the booked rooms.
+ * <p>
+ * Totals are updated in the transaction that saves or deletes the reservations, so they commit or roll back
+ * together. The rows are created beforehand by {@link #prepare(Instant, Instant)}, which leaves only updates to
+ * that transaction. Rows are updated in night order, so bookings with overlapping stays queue on the shared nights
+ * instead of deadlocking.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor
+public class OccupancyAggregates implements SmartInitializingSingleton {
+
+    public static final int MAX_REPORT_NIGHTS = 3660;
+
+    private static final String BACKFILL = "night-occupancy";
+
+    private final NightOccupancyRepository nightOccupancyRepository;
+    private final RoomRepository roomRepository;
+    private final ReservationRepository reservationRepository;
+    private final BackfillRepository backfillRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Creates the missing rows for every night from the first arrival to the last departure on the shard bound to
+     * the calling thread. Runs before the booking transaction, a row inserted concurrently by another booking is fine.
+     */
+    public void prepare(final Instant fromDate, final Instant toDate) {
+        final LocalDate first = night(fromDate);
+        final LocalDate last = night(toDate);
+        final Set<LocalDate> existing = new HashSet<>(nightOccupancyRepository.findNights(first, last));
+        for (LocalDate night = first; !night.isAfter(last); night = night.plusDays(1)) {
+            if (!existing.contains(night)) {
+                try {
+                    nightOccupancyRepository.save(NightOccupancy.builder().night(night).build());
+                } catch (DataIntegrityViolationException e) {
+                    log.debug("Occupancy of {} was created concurrently", night);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a reservation in the transaction saving it.
+     */
+    public void booked(final Instant startDate, final Instant endDate) {
+        record(startDate, endDate, 1);
+    }
+
+    /**
+     * Counts reservations in the transaction saving them, with one update per affected night.
+     */
+    public void booked(final Collection<Reservation> reservations) {
+        final Map<LocalDate, int[]> nights = new TreeMap<>();
+        reservations.forEach(reservation -> count(nights, reservation.getStartDate(), reservation.getEndDate()));
+        apply(nights, 1);
+    }
+
+    /**
+     * Removes a reservation from the totals in the transaction deleting it.
+     */
+    public void cancelled(final Instant startDate, final Instant endDate) {
+        record(startDate, endDate, -1);
+    }
+
+    public List<OccupancyNight> report(final Instant fromDate, final Instant toDate) {
+        final LocalDate first = night(fromDate);
+        final long nights = ChronoUnit.DAYS.between(first, night(toDate));
+        if (nights > MAX_REPORT_NIGHTS) {
+            throw new ReservationException(format("Occupancy report cannot span more than %d nights", MAX_REPORT_NIGHTS));
+        }
+        if (nights <= 0) {
+            return Collections.emptyList();
+        }
+        final long rooms = shardRouter.fanOut(shard -> roomRepository.count()).stream().mapToLong(Long::longValue).sum();
+        final List<OccupancyNight> report = new ArrayList<>((int) nights);
+        for (int i = 0; i < nights; i++) {
+            report.add(new OccupancyNight(first.plusDays(i), 0, (int) rooms, 0, 0));
+        }
+        for (List<NightOccupancy> shard : shardRouter.fanOut(shard ->
+                nightOccupancyRepository.findRange(first, first.plusDays(nights)))) {
+            for (NightOccupancy night : shard) {
+                final OccupancyNight total = report.get((int) ChronoUnit.DAYS.between(first, night.getNight()));
+                total.setBooked(total.getBooked() + night.getBooked());
+                total.setFree((int) Math.max(0, rooms - total.getBooked()));
+                total.setArrivals(total.getArrivals() + night.getArrivals());
+                total.setDepartures(total.getDepartures() + night.getDepartures());
+            }
+        }
+        return report;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * Sets the totals of every shard that has not been backfilled yet to what its reservations add up to, which is
+     * needed once after upgrading to a version with aggregates. Runs before the web server accepts requests. The
+     * rows are locked before the reservations are read and overwritten rather than incremented, so bookings of other
+     * nodes and journal replays counted earlier are neither lost nor counted twice. Completion is recorded in a
+     * {@link Backfill} row in the same transaction.
+     */
+    void backfill() {
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            final int current = shard;
+            shardRouter.run(shard, () -> {
+                try {
+                    final Integer nights = transactionTemplate.execute(status -> backfillShard());
+                    if (nights != null) {
+                        log.info("Backfilled occupancy of {} nights on shard {}", nights, current);
+                    }
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("Occupancy backfill of shard {} raced another node, retried on next start", current, e);
+                }
+            });
+        }
+    }
+
+    private Integer backfillShard() {
+        final List<NightOccupancy> rows = nightOccupancyRepository.findAllForUpdate();
+        if (backfillRepository.existsById(BACKFILL)) {
+            return null;
+        }
+        final Map<LocalDate, int[]> nights = new TreeMap<>();
+        try (Stream<ReservationInterval> reservations = reservationRepository.streamIntervals()) {
+            reservations.forEach(reservation -> count(nights, reservation.getStartDate(), reservation.getEndDate()));
+        }
+        for (NightOccupancy row : rows) {
+            final int[] totals = nights.remove(row.getNight());
+            row.setBooked(totals == null ? 0 : totals[0]);
+            row.setArrivals(totals == null ? 0 : totals[1]);
+            row.setDepartures(totals == null ? 0 : totals[2]);
+        }
+        final List<NightOccupancy> missing = new ArrayList<>(nights.size());
+        nights.forEach((night, totals) -> missing.add(new NightOccupancy(night, totals[0], totals[1], totals[2])));
+        nightOccupancyRepository.saveAll(missing);
+        backfillRepository.save(new Backfill(BACKFILL, Instant.now()));
+        return rows.size() + missing.size();
+    }
+
+    /**
+     * Removes reservations deleted in bulk from the totals in the transaction deleting them, with one update per
+     * affected night.
+     */
+    public void cancelled(final Collection<ReservationInterval> reservations) {
+        final Map<LocalDate, int[]> nights = new TreeMap<>();
+        reservations.forEach(reservation -> count(nights, reservation.getStartDate(), reservation.getEndDate()));
+        apply(nights, -1);
+    }
+
+    /**
+     * Three updates in night order: the booked range, the arrival and the departure night.
+     */
+    private void record(final Instant startDate, final Instant endDate, final int delta) {
+        final LocalDate arrival = night(startDate);
+        final LocalDate departure = night(endDate);
+        nightOccupancyRepository.addBooked(arrival, departure, delta);
+        nightOccupancyRepository.addArrivals(arrival, delta);
+        nightOccupancyRepository.addDepartures(departure, delta);
+    }
+
+    private void apply(final Map<LocalDate, int[]> nights, final int sign) {
+        nights.forEach((night, totals) ->
+                nightOccupancyRepository.addTotals(night, sign * totals[0], sign * totals[1], sign * totals[2]));
+    }
+
+    /**
+     * Adds a reservation to booked, arrivals and departures of its nights.
+     */
+    private static void count(final Map<LocalDate, int[]> nights, final Instant startDate, final Instant endDate) {
+        final LocalDate arrival = night(startDate);
+        final LocalDate departure = night(endDate);
+        for (LocalDate night = arrival; night.isBefore(departure); night = night.plusDays(1)) {
+            totals(nights, night)[0]++;
+        }
+        totals(nights, arrival)[1]++;
+        totals(nights, departure)[2]++;
+    }
+
+    private static int[] totals(final Map<LocalDate, int[]> nights, final LocalDate night) {
+        return nights.computeIfAbsent(night, key -> new int[3]);
+    }
+
+    private static LocalDate night(final Instant date) {
+        return date.atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
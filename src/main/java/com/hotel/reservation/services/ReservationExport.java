@@ -0,0 +1,74 @@
+package com.hotel.reservation.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.reservation.DateScalar;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every reservation as one JSON object per line. Rows are read through a database cursor and written as
+ * they arrive, so memory use does not depend on the number of reservations. Shards are exported one after another.
+ */
+@Service
+public class ReservationExport {
+
+    private final ReservationRepository reservationRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+
+    public ReservationExport(final ReservationRepository reservationRepository,
+                             final ObjectMapper objectMapper,
+                             final PlatformTransactionManager transactionManager,
+                             final ShardRouter shardRouter) {
+        this.reservationRepository = reservationRepository;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void writeTo(final OutputStream output) {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                shardRouter.run(shard, () -> readOnlyTransaction.execute(status -> {
+                    try (Stream<ReservationInterval> reservations = reservationRepository.streamIntervals()) {
+                        final Iterator<ReservationInterval> iterator = reservations.iterator();
+                        while (iterator.hasNext()) {
+                            write(generator, iterator.next());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(final JsonGenerator generator, final ReservationInterval reservation) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", reservation.getId());
+        generator.writeNumberField("roomId", reservation.getRoomId());
+        generator.writeNumberField("userId", reservation.getUserId());
+        generator.writeStringField("startDate", DateScalar.format(reservation.getStartDate()));
+        generator.writeStringField("endDate", DateScalar.format(reservation.getEndDate()));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
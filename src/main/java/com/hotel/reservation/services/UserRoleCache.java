@@ -0,0 +1,58 @@
+package com.hotel.reservation.services;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.hotel.reservation.Role;
+import com.hotel.reservation.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded login to role cache for authorization checks. Unknown logins are not cached, a user created
+ * elsewhere is seen on the next lookup, but {@link #invalidate(String)} has to be called whenever a role changes.
+ * Hit and miss counts are published as {@code cache.*} meters tagged {@code cache=userRoles}.
+ */
+@Component
+public class UserRoleCache implements MeterBinder {
+
+    private final LoadingCache<String, Optional<Role>> roles;
+
+    public UserRoleCache(final UserRepository userRepository,
+                         @Value("${hotel.role-cache.maximum-size:10000}") final long maximumSize,
+                         @Value("${hotel.role-cache.expire-after-write-seconds:60}") final long expireAfterWriteSeconds) {
+        this.roles = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(CacheLoader.from(userRepository::findRoleByLogin));
+    }
+
+    public Optional<Role> getRole(final String login) {
+        final Optional<Role> role = roles.getUnchecked(login);
+        if (!role.isPresent()) {
+            roles.invalidate(login);
+        }
+        return role;
+    }
+
+    public void invalidate(final String login) {
+        roles.invalidate(login);
+    }
+
+    public CacheStats stats() {
+        return roles.stats();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, roles, "userRoles");
+    }
+}
@@ -0,0 +1,34 @@
+package com.hotel.reservation.shard;
+
+/**
+ * The shard the current thread works on. Connections, transactions and generated ids follow it, threads that
+ * never bind a shard use shard 0, which also holds the users.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = ThreadLocal.withInitial(() -> 0);
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the previously bound shard, to be passed to {@link #restore(int)}
+     */
+    static int bind(final int shard) {
+        final int previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(final int shard) {
+        if (shard == 0) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
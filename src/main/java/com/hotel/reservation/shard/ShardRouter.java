@@ -0,0 +1,135 @@
+package com.hotel.reservation.shard;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hotel.reservation.replica.ReadContext;
+import com.hotel.reservation.services.ExecutionMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Maps hotels and entity ids to shards and runs work on them. Shard 0 is {@code spring.datasource.*}, every url
+ * in {@code hotel.sharding.urls} adds a shard with the same credentials. A hotel lives on shard
+ * {@code hotelId mod shards}; rooms and reservations get ids in their shard's range, so operations addressed by id
+ * find their shard without a lookup. Without extra shards everything runs inline on shard 0.
+ */
+@Component
+public class ShardRouter {
+
+    /**
+     * Ids per shard, leaves room for 16 shards in a positive int.
+     */
+    public static final int SHARD_ID_RANGE = 1 << 27;
+    public static final int MAX_SHARDS = Integer.MAX_VALUE / SHARD_ID_RANGE + 1;
+
+    private final int shards;
+    private final String ddlAuto;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ShardSchema shardSchema;
+    private final ExecutorService fanOutExecutor;
+
+    public ShardRouter(@Value("${hotel.sharding.urls:}") final String[] urls,
+                       @Value("${spring.jpa.hibernate.ddl-auto:none}") final String ddlAuto,
+                       final EntityManagerFactory entityManagerFactory,
+                       final ShardSchema shardSchema) {
+        this.shards = urls.length + 1;
+        if (shards > MAX_SHARDS) {
+            throw new IllegalArgumentException(String.format("At most %d shards are supported", MAX_SHARDS));
+        }
+        this.ddlAuto = ddlAuto;
+        this.entityManagerFactory = entityManagerFactory;
+        this.shardSchema = shardSchema;
+        this.fanOutExecutor = shards == 1 ? null : Executors.newFixedThreadPool(shards,
+                new ThreadFactoryBuilder().setNameFormat("shard-fan-out-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Runs before anything reads the other shards: brings their schema up to date when Hibernate manages the schema
+     * and copies the users of shard 0 to them.
+     */
+    @PostConstruct
+    public void prepareShards() {
+        final boolean manageSchema = !"none".equals(ddlAuto) && !"validate".equals(ddlAuto);
+        for (int shard = 1; shard < shards; shard++) {
+            if (manageSchema) {
+                shardSchema.update(shard);
+            }
+            shardSchema.copyUsers(entityManagerFactory, shard);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+
+    public int shardCount() {
+        return shards;
+    }
+
+    public int shardOfHotel(final Integer hotelId) {
+        return hotelId == null ? 0 : Math.floorMod(hotelId, shards);
+    }
+
+    public int shardOf(final int id) {
+        final int shard = id / SHARD_ID_RANGE;
+        return shard < shards ? shard : 0;
+    }
+
+    public <T> T on(final int shard, final Supplier<T> work) {
+        final int previous = ShardContext.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    public void run(final int shard, final Runnable work) {
+        on(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the work on every shard in parallel, the results are in shard order. Must not be nested. Read-only work
+     * stays read-only on the fan-out threads.
+     */
+    public <T> List<T> fanOut(final IntFunction<T> work) {
+        if (fanOutExecutor == null) {
+            return Collections.singletonList(on(0, () -> work.apply(0)));
+        }
+        final List<CompletableFuture<T>> futures = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            final int target = shard;
+            futures.add(CompletableFuture.supplyAsync(ReadContext.propagate(() -> on(target, () -> work.apply(target))),
+                    fanOutExecutor));
+        }
+        final List<T> results = new ArrayList<>(shards);
+        futures.forEach(future -> results.add(ExecutionMode.join(future)));
+        return results;
+    }
+
+    /**
+     * Splits ids by the shard they belong to, keeping their order within a shard.
+     */
+    public Map<Integer, List<Integer>> byShard(final Collection<Integer> ids) {
+        final Map<Integer, List<Integer>> grouped = new TreeMap<>();
+        for (Integer id : ids) {
+            grouped.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return grouped;
+    }
+}
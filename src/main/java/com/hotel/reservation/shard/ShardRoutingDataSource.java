@@ -0,0 +1,42 @@
+package com.hotel.reservation.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard bound to the calling thread. A transaction keeps the connection it started
+ * with, so the shard has to be bound before the transaction begins. An EntityManager spanning a whole web request
+ * would keep the first connection of the request as well, which is why {@code spring.jpa.open-in-view} is off.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private List<DataSource> targets = Collections.emptyList();
+
+    @Override
+    public void setTargetDataSources(final Map<Object, Object> targetDataSources) {
+        super.setTargetDataSources(targetDataSources);
+        final List<DataSource> shards = new ArrayList<>();
+        targetDataSources.values().stream()
+                .filter(DataSource.class::isInstance)
+                .map(DataSource.class::cast)
+                .forEach(shards::add);
+        this.targets = Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * The datasources of the shards.
+     */
+    public List<DataSource> targets() {
+        return targets;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
@@ -0,0 +1,101 @@
+package com.hotel.reservation.shard;
+
+import com.hotel.reservation.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Hibernate only manages the schema of the connection it bootstraps with, which is shard 0. This keeps the mapping
+ * metadata so the other shards can be brought to the same schema, and copies the users of shard 0 to them so
+ * reservations can reference their user on every shard.
+ */
+@Slf4j
+@Component
+public class ShardSchema implements Integrator, HibernatePropertiesCustomizer {
+
+    private Metadata metadata;
+    private ServiceRegistry serviceRegistry;
+
+    @Override
+    public void customize(final Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> Collections.singletonList(this));
+    }
+
+    @Override
+    public void integrate(final Metadata metadata, final SessionFactoryImplementor sessionFactory,
+                          final SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = metadata;
+        this.serviceRegistry = serviceRegistry;
+    }
+
+    @Override
+    public void disintegrate(final SessionFactoryImplementor sessionFactory, final SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = null;
+        this.serviceRegistry = null;
+    }
+
+    void update(final int shard) {
+        final int previous = ShardContext.bind(shard);
+        try {
+            new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata, serviceRegistry);
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    void copyUsers(final EntityManagerFactory entityManagerFactory, final int shard) {
+        final List<User> users = inTransaction(entityManagerFactory, 0, entityManager ->
+                entityManager.createQuery("select u from User u", User.class).getResultList());
+        final int copied = inTransaction(entityManagerFactory, shard, entityManager -> {
+            final Set<Integer> existing = new HashSet<>(entityManager.createQuery("select u.id from User u", Integer.class).getResultList());
+            int count = 0;
+            for (User user : users) {
+                if (existing.add(user.getId())) {
+                    entityManager.merge(User.builder().id(user.getId()).login(user.getLogin()).role(user.getRole()).build());
+                    count++;
+                }
+            }
+            return count;
+        });
+        if (copied > 0) {
+            log.info("Copied {} users to shard {}", copied, shard);
+        }
+    }
+
+    private static <T> T inTransaction(final EntityManagerFactory entityManagerFactory, final int shard,
+                                       final Function<EntityManager, T> work) {
+        final int previous = ShardContext.bind(shard);
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            final T result = work.apply(entityManager);
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+            ShardContext.restore(previous);
+        }
+    }
+}
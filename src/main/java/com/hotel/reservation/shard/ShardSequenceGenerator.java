@@ -0,0 +1,69 @@
+package com.hotel.reservation.shard;
+
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.ExportableProducer;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pooled sequence ids that are unique across shards. Every shard draws blocks from its own sequence through its
+ * own optimizer, so a block is never shared between databases, and the shard number is added in the high bits
+ * (see {@link ShardRouter#SHARD_ID_RANGE}). The shard of a room or reservation can then be read from its id.
+ * Shard 0 ids are the plain sequence values. An entity that already has an id keeps it, which is how users are
+ * copied to every shard under the same id.
+ */
+public class ShardSequenceGenerator implements IdentifierGenerator, Configurable, ExportableProducer {
+
+    private final Map<Integer, SequenceStyleGenerator> shards = new ConcurrentHashMap<>();
+    private Type type;
+    private Properties params;
+    private ServiceRegistry serviceRegistry;
+    private Database database;
+
+    @Override
+    public void configure(final Type type, final Properties params, final ServiceRegistry serviceRegistry) throws MappingException {
+        this.type = type;
+        this.params = params;
+        this.serviceRegistry = serviceRegistry;
+    }
+
+    @Override
+    public void registerExportables(final Database database) {
+        this.database = database;
+        shards.values().forEach(generator -> generator.registerExportables(database));
+        shards.computeIfAbsent(0, this::newGenerator);
+    }
+
+    @Override
+    public Serializable generate(final SharedSessionContractImplementor session, final Object object) {
+        final Serializable assigned = session.getEntityPersister(null, object).getIdentifier(object, session);
+        if (assigned != null) {
+            return assigned;
+        }
+        final int shard = ShardContext.current();
+        final long id = ((Number) shards.computeIfAbsent(shard, this::newGenerator).generate(session, object)).longValue();
+        if (id >= ShardRouter.SHARD_ID_RANGE) {
+            throw new IllegalStateException(String.format("Sequence of shard %d is exhausted", shard));
+        }
+        return (int) id + shard * ShardRouter.SHARD_ID_RANGE;
+    }
+
+    private SequenceStyleGenerator newGenerator(final int shard) {
+        final SequenceStyleGenerator generator = new SequenceStyleGenerator();
+        generator.configure(type, params, serviceRegistry);
+        if (database != null) {
+            generator.registerExportables(database);
+        }
+        return generator;
+    }
+}
@@ -0,0 +1,41 @@
+package com.hotel.reservation;
+
+import graphql.relay.Connection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionsTest {
+
+    @Test
+    public void cursorRoundTripTest() {
+        assertEquals(42, Connections.after(Connections.cursor(42)));
+        assertEquals(Integer.MIN_VALUE, Connections.after(null));
+        assertThrows(IllegalArgumentException.class, () -> Connections.after("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> Connections.after(Connections.cursor(1).substring(1)));
+    }
+
+    @Test
+    public void extraNodeSignalsNextPageTest() {
+        final Connection<Integer> page = Connections.of(Arrays.asList(3, 5, 8), 2, Function.identity());
+
+        assertEquals(2, page.getEdges().size());
+        assertTrue(page.getPageInfo().isHasNextPage());
+        assertEquals(5, Connections.after(page.getPageInfo().getEndCursor().getValue()));
+
+        final Connection<Integer> last = Connections.of(Collections.singletonList(8), 2, Function.identity());
+        assertFalse(last.getPageInfo().isHasNextPage());
+        assertEquals(8, Connections.after(last.getEdges().get(0).getCursor().getValue()));
+    }
+
+    @Test
+    public void pageSizeIsCappedTest() {
+        assertEquals(Connections.DEFAULT_PAGE_SIZE, Connections.pageSize(null));
+        assertEquals(1000, Connections.pageSize(1_000_000));
+        assertThrows(IllegalArgumentException.class, () -> Connections.pageSize(-1));
+    }
+}
@@ -0,0 +1,84 @@
+package com.hotel.reservation;
+
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+
+import static com.hotel.reservation.Role.ADMIN;
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GraphQLDataLoadersTest {
+
+    private static final int ROOMS = 10;
+    private static final String NESTED_QUERY = "{ findUser(login: \"user-USER\") { reservations { " +
+            "room { id reservations { user { login } } } } } }";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private GraphQL graphQL;
+
+    @Autowired
+    private GraphQLDataLoaders graphQLDataLoaders;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+
+        final User user = userRepository.save(User.builder().login("user-USER").role(USER).build());
+        final User admin = userRepository.save(User.builder().login("user-ADMIN").role(ADMIN).build());
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        for (int i = 0; i < ROOMS; i++) {
+            final Room room = roomRepository.save(Room.builder().build());
+            reservationRepository.save(Reservation.builder().room(room).user(user)
+                    .startDate(tomorrow).endDate(tomorrow.plus(1, DAYS)).build());
+            reservationRepository.save(Reservation.builder().room(room).user(admin)
+                    .startDate(tomorrow.plus(2, DAYS)).endDate(tomorrow.plus(3, DAYS)).build());
+        }
+    }
+
+    @Test
+    public void nestedQueryIsBatchedPerLevelTest() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        final ExecutionResult result = graphQL.execute(ExecutionInput.newExecutionInput()
+                .query(NESTED_QUERY)
+                .dataLoaderRegistry(graphQLDataLoaders.registry())
+                .build());
+
+        assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+        // user, user reservations, rooms, room reservations, reservation users
+        assertEquals(5, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.hotel.reservation;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class GraphQLProviderTest {
+
+    private static final String DEEP_QUERY = "{ findUser(login: \"user-USER\") { reservations { room { reservations { " +
+            "user { reservations { room { reservations { user { reservations { id } } } } } } } } } } }";
+
+    private static final String WIDE_QUERY = "{ findUser(login: \"user-USER\") { reservations { " +
+            "room { reservations { room { reservations { id } } } } } } }";
+
+    @Autowired
+    private GraphQL graphQL;
+
+    @Test
+    public void dateArgumentsAreParsedTest() {
+        final ExecutionResult result = graphQL.execute(
+                "{ availabilityCountFromTo(fromDate: \"2030-01-01 00:00:00\", toDate: \"2030-01-02 00:00:00\") }");
+
+        assertTrue(result.getErrors().isEmpty());
+        assertNotNull(result.getData());
+    }
+
+    @Test
+    public void malformedDateArgumentIsRejectedTest() {
+        final ExecutionResult result = graphQL.execute(
+                "{ availabilityCountFromTo(fromDate: \"01/01/2030\", toDate: \"2030-01-02 00:00:00\") }");
+
+        assertFalse(result.getErrors().isEmpty());
+    }
+
+    @Test
+    public void tooDeepQueryIsRejectedTest() {
+        final ExecutionResult result = graphQL.execute(DEEP_QUERY);
+
+        assertFalse(result.getErrors().isEmpty());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void tooComplexQueryIsRejectedTest() {
+        final ExecutionResult result = graphQL.execute(WIDE_QUERY);
+
+        assertFalse(result.getErrors().isEmpty());
+        assertNull(result.getData());
+    }
+}
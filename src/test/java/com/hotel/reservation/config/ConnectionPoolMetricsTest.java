@@ -0,0 +1,70 @@
+package com.hotel.reservation.config;
+
+import com.hotel.reservation.replica.ReplicaRoutingDataSource;
+import com.hotel.reservation.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ConnectionPoolMetricsTest {
+
+    private final HikariDataSource shard0 = pool("shard-0");
+    private final HikariDataSource shard1 = pool("shard-1");
+    private final HikariDataSource replica = pool("replica-0");
+
+    @AfterEach
+    public void tearDown() {
+        shard0.close();
+        shard1.close();
+        replica.close();
+    }
+
+    @Test
+    public void poolsBehindRoutingDataSourcesArePublishedTest() throws Exception {
+        final Map<Object, Object> shards = new HashMap<>();
+        shards.put(0, shard0);
+        shards.put(1, shard1);
+        final ShardRoutingDataSource sharded = new ShardRoutingDataSource();
+        sharded.setTargetDataSources(shards);
+        sharded.setDefaultTargetDataSource(shard0);
+        sharded.afterPropertiesSet();
+        final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(sharded, Arrays.asList(replica));
+
+        assertEquals(Arrays.asList("replica-0", "shard-0", "shard-1"), ConnectionPoolMetrics.pools(dataSource).stream()
+                .map(HikariDataSource::getPoolName)
+                .sorted()
+                .collect(Collectors.toList()));
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ConnectionPoolMetrics(dataSource).bindTo(registry);
+        assertEquals(0, registry.get("hotel.db.pool.saturation").tag("pool", "shard-1").gauge().value());
+
+        try (Connection connection = shard1.getConnection()) {
+            assertFalse(connection.isClosed());
+            assertEquals(0.5, registry.get("hotel.db.pool.saturation").tag("pool", "shard-1").gauge().value());
+            assertEquals(1, registry.get("hikaricp.connections.active").tag("pool", "shard-1").gauge().value());
+        }
+        assertNotNull(registry.find("hikaricp.connections.pending").tag("pool", "shard-1").gauge());
+    }
+
+    private static HikariDataSource pool(final String name) {
+        final HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name);
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+}
@@ -1,5 +1,7 @@
 package com.hotel.reservation.controllers;
 
+import com.hotel.reservation.idempotency.IdempotencyFilter;
+import com.hotel.reservation.index.OccupancyIndex;
 import com.hotel.reservation.model.User;
 import com.hotel.reservation.repository.ReservationRepository;
 import com.hotel.reservation.repository.RoomRepository;
@@ -9,12 +11,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static com.hotel.reservation.Role.ADMIN;
 import static com.hotel.reservation.Role.USER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @AutoConfigureMockMvc
@@ -33,6 +43,9 @@ public class ControllerTest {
     @Autowired
     private ReservationRepository reservationRepository;
 
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
     @BeforeEach
     public void setUp() {
         reservationRepository.deleteAll();
@@ -120,7 +133,7 @@ public class ControllerTest {
                         .param("endDate", "2023-01-04 00:00:00"))
                 .andExpect(status().isOk());
 
-        final int reservationId = roomRepository.findById(Integer.parseInt(existingRoomIdString)).get().getReservations().get(0).getId();
+        final int reservationId = reservationRepository.findAll().iterator().next().getId();
 
         mockMvc.perform(MockMvcRequestBuilders.post("/reserveRoom")
                         .param("login", "user-ADMIN")
@@ -138,6 +151,90 @@ public class ControllerTest {
                 .andExpect(content().string(String.format("This reservation collides with reservation with ID: %d", reservationId)));
     }
 
+    @Test
+    public void reserveRoomWithIdempotencyKey() throws Exception {
+        final String existingRoomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
+                        .param("login", "user-ADMIN"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/reserveRoom")
+                            .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "reserve-" + existingRoomIdString)
+                            .param("login", "user-USER")
+                            .param("roomId", existingRoomIdString)
+                            .param("startDate", "2030-01-03 00:00:00")
+                            .param("endDate", "2030-01-04 00:00:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, attempt == 0 ? null : "true"));
+        }
+        assertEquals(1, reservationRepository.count());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/reserveRoom")
+                        .header(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "reserve-" + existingRoomIdString)
+                        .param("login", "user-USER")
+                        .param("roomId", existingRoomIdString)
+                        .param("startDate", "2030-01-05 00:00:00")
+                        .param("endDate", "2030-01-06 00:00:00"))
+                .andExpect(status().isConflict());
+        assertEquals(1, reservationRepository.count());
+    }
+
+    @Test
+    public void reserveRooms() throws Exception {
+        final String existingRoomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
+                        .param("login", "user-ADMIN"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        final String body = String.format("[" +
+                "{\"roomId\": %1$s, \"login\": \"user-USER\", \"startDate\": \"2030-01-01 00:00:00\", \"endDate\": \"2030-01-03 00:00:00\"}," +
+                "{\"roomId\": %1$s, \"login\": \"user-USER\", \"startDate\": \"2030-01-02 00:00:00\", \"endDate\": \"2030-01-04 00:00:00\"}" +
+                "]", existingRoomIdString);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/reserveRooms")
+                        .param("login", "user-USER")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/reserveRooms")
+                        .param("login", "user-ADMIN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reservationId").isNumber())
+                .andExpect(jsonPath("$[1].error").value("This reservation collides with reservation at index 0 of the batch"));
+    }
+
+    @Test
+    public void availability() throws Exception {
+        occupancyIndex.rebuild();
+        final String bookedRoomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
+                        .param("login", "user-ADMIN"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        final String freeRoomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
+                        .param("login", "user-ADMIN"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/reserveRoom")
+                        .param("login", "user-USER")
+                        .param("roomId", bookedRoomIdString)
+                        .param("startDate", "2030-01-01 00:00:00")
+                        .param("endDate", "2030-01-03 00:00:00"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availability")
+                        .param("fromDate", "2030-01-02 00:00:00")
+                        .param("toDate", "2030-01-04 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(String.format("[%s]", freeRoomIdString)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availability/count")
+                        .param("fromDate", "2030-01-03 00:00:00")
+                        .param("toDate", "2030-01-04 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+    }
+
     @Test
     public void deleteReservation() throws Exception {
         final String existingRoomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
@@ -169,4 +266,36 @@ public class ControllerTest {
                         .param("reservationId", String.valueOf(reservationId)))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void exportReservations() throws Exception {
+        final String roomIdString = mockMvc.perform(MockMvcRequestBuilders.post("/addRoom")
+                        .param("login", "user-ADMIN"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        for (String day : new String[]{"2030-01-01", "2030-01-02"}) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/reserveRoom")
+                            .param("login", "user-USER")
+                            .param("roomId", roomIdString)
+                            .param("startDate", day + " 12:00:00")
+                            .param("endDate", day + " 18:00:00"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/reservations/export")
+                        .param("login", "user-USER"))
+                .andExpect(status().isUnauthorized());
+
+        final MvcResult export = mockMvc.perform(MockMvcRequestBuilders.get("/reservations/export")
+                        .param("login", "user-ADMIN"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String[] lines = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(String.format("\"roomId\":%s", roomIdString)));
+        assertTrue(lines[0].contains("\"startDate\":\"2030-01-01 12:00:00\""));
+        assertTrue(lines[1].contains("\"endDate\":\"2030-01-02 18:00:00\""));
+    }
+}
@@ -0,0 +1,132 @@
+package com.hotel.reservation.feed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationFeedTest {
+
+    private static final Instant START = Instant.parse("2030-01-01T12:00:00Z");
+
+    private ReservationFeed feed;
+
+    @BeforeEach
+    public void setUp() {
+        feed = new ReservationFeed(4, 2, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    public void readReturnsPublishedEventsInOrderTest() {
+        final long first = feed.booked(1, 10, START, START.plus(1, DAYS)).getOffset();
+        feed.cancelled(1, 10, START, START.plus(1, DAYS));
+
+        final List<ReservationEvent> events = feed.read(first, 10);
+        assertEquals(2, events.size());
+        assertEquals(ReservationEvent.Type.BOOKED, events.get(0).getType());
+        assertEquals(ReservationEvent.Type.CANCELLED, events.get(1).getType());
+        assertEquals(first + 1, events.get(1).getOffset());
+        assertTrue(feed.read(first + 2, 10).isEmpty());
+    }
+
+    @Test
+    public void overwrittenEventsExpireTest() {
+        final long first = feed.booked(1, 10, START, START.plus(1, DAYS)).getOffset();
+        for (int i = 2; i <= 5; i++) {
+            feed.booked(i, 10, START, START.plus(1, DAYS));
+        }
+        final FeedOffsetExpiredException expired = assertThrows(FeedOffsetExpiredException.class, () -> feed.read(first, 10));
+        assertEquals(first + 1, expired.getOldestOffset());
+        assertThrows(FeedOffsetExpiredException.class, () -> feed.events(first - 1));
+        assertEquals(4, feed.read(first + 1, 10).size());
+    }
+
+    @Test
+    public void subscriberReceivesOnlyRequestedEventsTest() throws InterruptedException {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.events(null).subscribe(subscriber);
+        for (int i = 1; i <= 3; i++) {
+            feed.booked(i, 10, START, START.plus(1, DAYS));
+        }
+        subscriber.subscription.request(2);
+        awaitEvents(subscriber, 2);
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(2, subscriber.events.size());
+
+        subscriber.subscription.request(5);
+        awaitEvents(subscriber, 3);
+        feed.booked(4, 10, START, START.plus(1, DAYS));
+        awaitEvents(subscriber, 4);
+        assertEquals(Arrays.asList(1, 2, 3, 4), reservationIds(subscriber));
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    public void subscriberResumesAfterOffsetTest() throws InterruptedException {
+        final long first = feed.booked(1, 10, START, START.plus(1, DAYS)).getOffset();
+        feed.booked(2, 10, START, START.plus(1, DAYS));
+        feed.booked(3, 10, START, START.plus(1, DAYS));
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        feed.events(first).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        awaitEvents(subscriber, 2);
+        assertEquals(Arrays.asList(2, 3), reservationIds(subscriber));
+        subscriber.subscription.cancel();
+    }
+
+    private static List<Integer> reservationIds(final RecordingSubscriber subscriber) {
+        return subscriber.events.stream().map(ReservationEvent::getReservationId).collect(Collectors.toList());
+    }
+
+    private static void awaitEvents(final RecordingSubscriber subscriber, final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriber.events.size() < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertNull(subscriber.error);
+        assertEquals(count, subscriber.events.size());
+    }
+
+    private static class RecordingSubscriber implements Subscriber<ReservationEvent> {
+
+        private final List<ReservationEvent> events = new CopyOnWriteArrayList<>();
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final ReservationEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(final Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hotel.reservation.idempotency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcIdempotencyStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", ""));
+        jdbcTemplate.execute("drop table if exists idempotency_key");
+        store = new JdbcIdempotencyStore(jdbcTemplate, 3600, 60);
+        store.createTable();
+    }
+
+    @Test
+    public void completedResponseIsReplayedTest() {
+        assertFalse(store.claim("key", "request").isPresent());
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.claim("key", "request"));
+
+        store.complete("key", new StoredResponse("request", 200, "application/json", "42".getBytes(StandardCharsets.UTF_8)));
+        final Optional<StoredResponse> replayed = store.claim("key", "request");
+        assertTrue(replayed.isPresent());
+        assertEquals(200, replayed.get().getStatus());
+        assertEquals("application/json", replayed.get().getContentType());
+        assertArrayEquals("42".getBytes(StandardCharsets.UTF_8), replayed.get().getBody());
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.claim("key", "other request"));
+    }
+
+    @Test
+    public void releasedKeyCanBeClaimedAgainTest() {
+        assertFalse(store.claim("key", "request").isPresent());
+        store.release("key");
+        assertFalse(store.claim("key", "request").isPresent());
+    }
+
+    @Test
+    public void abandonedClaimCanBeTakenOverTest() {
+        jdbcTemplate.update("insert into idempotency_key (id, fingerprint, status, created_at) values (?, ?, 0, ?)",
+                "key", "request", Timestamp.from(Instant.now().minus(5, ChronoUnit.MINUTES)));
+        assertFalse(store.claim("key", "request").isPresent());
+        assertThrows(IdempotencyKeyConflictException.class, () -> store.claim("key", "request"));
+    }
+}
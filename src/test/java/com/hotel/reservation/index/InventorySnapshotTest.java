@@ -0,0 +1,91 @@
+package com.hotel.reservation.index;
+
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class InventorySnapshotTest {
+
+    private static final String SNAPSHOT_PATH = "build/snapshot-test/inventory.snapshot";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+        Files.deleteIfExists(Paths.get(SNAPSHOT_PATH));
+    }
+
+    @Test
+    public void snapshotIsCaughtUpWithTheDatabaseTest() {
+        final User user = userRepository.save(User.builder().login("user-USER").role(USER).build());
+        final Room room = roomRepository.save(Room.builder().build());
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        final Reservation kept = reserve(user, room, tomorrow, tomorrow.plus(1, DAYS));
+        final Reservation cancelled = reserve(user, room, tomorrow.plus(2, DAYS), tomorrow.plus(3, DAYS));
+        reserve(user, room, Instant.now().minus(3, DAYS), Instant.now().minus(2, DAYS));
+
+        snapshot(false).write();
+        reservationRepository.delete(cancelled);
+        final Room added = roomRepository.save(Room.builder().build());
+        final Reservation created = reserve(user, added, tomorrow, tomorrow.plus(1, DAYS));
+
+        final Inventory inventory = snapshot(true).inventory();
+        assertEquals(2, inventory.reservationCount());
+        assertArrayEquals(new int[]{room.getId(), added.getId()}, Arrays.stream(inventory.getRoomIds()).sorted().toArray());
+        assertArrayEquals(new int[]{kept.getId(), created.getId()}, Arrays.stream(inventory.getReservationIds()).sorted().toArray());
+
+        final int index = kept.getId().equals(inventory.getReservationIds()[0]) ? 0 : 1;
+        assertEquals(room.getId().intValue(), inventory.getReservationRoomIds()[index]);
+        assertEquals(user.getId().intValue(), inventory.getUserIds()[index]);
+        assertEquals(kept.getStartDate().toEpochMilli(), inventory.getStarts()[index]);
+        assertEquals(kept.getEndDate().toEpochMilli(), inventory.getEnds()[index]);
+    }
+
+    @Test
+    public void missingSnapshotFallsBackToTheDatabaseTest() {
+        roomRepository.save(Room.builder().build());
+
+        final Inventory inventory = snapshot(true).inventory();
+        assertEquals(1, inventory.getRoomIds().length);
+        assertEquals(0, inventory.reservationCount());
+    }
+
+    private Reservation reserve(final User user, final Room room, final Instant start, final Instant end) {
+        return reservationRepository.save(Reservation.builder().user(user).room(room).startDate(start).endDate(end).build());
+    }
+
+    private InventorySnapshot snapshot(final boolean enabled) {
+        return new InventorySnapshot(enabled, SNAPSHOT_PATH, 300, roomRepository, reservationRepository, shardRouter);
+    }
+}
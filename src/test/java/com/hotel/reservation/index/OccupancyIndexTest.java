@@ -0,0 +1,77 @@
+package com.hotel.reservation.index;
+
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.time.temporal.ChronoUnit.HOURS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OccupancyIndexTest {
+
+    private static final Instant DAY = LocalDate.of(2030, 3, 1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    private static final int ROOM = 1001;
+    private static final int OTHER_ROOM = 1002;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+        occupancyIndex.rebuild();
+        occupancyIndex.addRoom(ROOM);
+        occupancyIndex.addRoom(OTHER_ROOM);
+    }
+
+    @Test
+    public void onlyWindowsBetweenDayStartsAreCoveredTest() {
+        assertTrue(occupancyIndex.covers(DAY, DAY.plus(2, DAYS)));
+        assertFalse(occupancyIndex.covers(DAY.plus(14, HOURS), DAY.plus(2, DAYS)));
+        assertFalse(occupancyIndex.covers(DAY, DAY.plus(1, DAYS).plus(10, HOURS)));
+        assertFalse(occupancyIndex.covers(DAY, DAY));
+    }
+
+    @Test
+    public void stayWithinOneDayOccupiesThatDayTest() {
+        occupancyIndex.occupy(ROOM, DAY.plus(10, HOURS), DAY.plus(16, HOURS));
+
+        assertEquals(Arrays.asList(OTHER_ROOM), occupancyIndex.freeRooms(DAY, DAY.plus(1, DAYS), 0, 10));
+        assertEquals(2, occupancyIndex.countFree(DAY.plus(1, DAYS), DAY.plus(2, DAYS)));
+    }
+
+    @Test
+    public void departureDaySharedWithAnArrivalStaysOccupiedTest() {
+        occupancyIndex.occupy(ROOM, DAY.minus(1, DAYS).plus(14, HOURS), DAY.plus(10, HOURS));
+        occupancyIndex.occupy(ROOM, DAY.plus(14, HOURS), DAY.plus(1, DAYS).plus(10, HOURS));
+
+        occupancyIndex.release(ROOM, DAY.minus(1, DAYS).plus(14, HOURS), DAY.plus(10, HOURS));
+        assertEquals(2, occupancyIndex.countFree(DAY.minus(1, DAYS), DAY));
+        assertEquals(1, occupancyIndex.countFree(DAY, DAY.plus(1, DAYS)));
+
+        occupancyIndex.release(ROOM, DAY.plus(14, HOURS), DAY.plus(1, DAYS).plus(10, HOURS));
+        assertEquals(2, occupancyIndex.countFree(DAY, DAY.plus(2, DAYS)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.hotel.reservation.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomIntervalsTest {
+
+    @Test
+    public void findOverlappingTest() {
+        final RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 20, 30);
+        intervals.add(2, 0, 10);
+        intervals.add(3, 40, 50);
+
+        assertEquals(RoomIntervals.NONE, intervals.findOverlapping(10, 20));
+        assertEquals(RoomIntervals.NONE, intervals.findOverlapping(30, 40));
+        assertEquals(RoomIntervals.NONE, intervals.findOverlapping(50, 60));
+        assertEquals(2, intervals.findOverlapping(5, 15));
+        assertEquals(1, intervals.findOverlapping(25, 26));
+        assertEquals(1, intervals.findOverlapping(15, 45));
+        assertEquals(3, intervals.findOverlapping(45, 100));
+    }
+
+    @Test
+    public void findOverlappingWithNestedIntervalsTest() {
+        final RoomIntervals intervals = new RoomIntervals();
+        intervals.add(1, 0, 100);
+        intervals.add(2, 10, 20);
+
+        assertEquals(1, intervals.findOverlapping(50, 60));
+        assertEquals(RoomIntervals.NONE, intervals.findOverlapping(100, 110));
+    }
+
+    @Test
+    public void addAndRemoveTest() {
+        final RoomIntervals intervals = new RoomIntervals();
+        for (int i = 0; i < 10; i++) {
+            intervals.add(i, i * 10, i * 10 + 5);
+        }
+        assertEquals(10, intervals.size());
+        assertEquals(4, intervals.findOverlapping(41, 42));
+
+        assertTrue(intervals.remove(4));
+        assertFalse(intervals.remove(4));
+        assertEquals(9, intervals.size());
+        assertEquals(RoomIntervals.NONE, intervals.findOverlapping(41, 42));
+        assertEquals(5, intervals.findOverlapping(41, 52));
+    }
+}
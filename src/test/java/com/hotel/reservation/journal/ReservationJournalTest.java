@@ -0,0 +1,170 @@
+package com.hotel.reservation.journal;
+
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.feed.ReservationEvent;
+import com.hotel.reservation.feed.ReservationFeed;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.HotelService;
+import com.hotel.reservation.services.OccupancyAggregates;
+import com.hotel.reservation.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+
+import static com.hotel.reservation.Role.ADMIN;
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "hotel.journal.enabled=true",
+        "hotel.journal.path=build/journal-test/reservations.journal",
+        "hotel.journal.flush-interval-millis=3600000"})
+class ReservationJournalTest {
+
+    private static final String USER_ADMIN = "user-ADMIN";
+    private static final String USER_USER = "user-USER";
+    private static final String REPLAY_PATH = "build/journal-test/replay.journal";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Autowired
+    private ReservationJournal reservationJournal;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private OccupancyAggregates occupancyAggregates;
+
+    @Autowired
+    private ReservationFeed reservationFeed;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        reservationJournal.drain();
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+        reservationIntervalIndex.rebuild();
+        occupancyIndex.rebuild();
+        Files.deleteIfExists(Paths.get(REPLAY_PATH));
+        Files.deleteIfExists(Paths.get(REPLAY_PATH + ".checkpoint"));
+
+        userRepository.save(User.builder().login(USER_USER).role(USER).build());
+        userRepository.save(User.builder().login(USER_ADMIN).role(ADMIN).build());
+    }
+
+    @Test
+    public void journaledBookingIsInsertedOnDrainTest() {
+        final int roomId = hotelService.addRoom(USER_ADMIN);
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+
+        final long offset = reservationFeed.headOffset();
+        hotelService.reserveRoom(USER_USER, roomId, tomorrow, tomorrow.plus(2, DAYS));
+        assertEquals(0, reservationRepository.count());
+        assertTrue(reservationFeed.read(offset, 10).isEmpty());
+
+        final ReservationException pending = assertThrows(ReservationException.class, () ->
+                hotelService.reserveRoom(USER_USER, roomId, tomorrow.plus(1, DAYS), tomorrow.plus(3, DAYS)));
+        assertEquals("This reservation collides with a reservation that is being saved", pending.getMessage());
+
+        reservationJournal.drain();
+        assertEquals(1, reservationRepository.count());
+
+        final Integer reservationId = reservationRepository.findAll().iterator().next().getId();
+        final List<ReservationEvent> events = reservationFeed.read(offset, 10);
+        assertEquals(1, events.size());
+        assertEquals(ReservationEvent.Type.BOOKED, events.get(0).getType());
+        assertEquals(reservationId, events.get(0).getReservationId());
+        final ReservationException saved = assertThrows(ReservationException.class, () ->
+                hotelService.reserveRoom(USER_USER, roomId, tomorrow.plus(1, DAYS), tomorrow.plus(3, DAYS)));
+        assertEquals(String.format("This reservation collides with reservation with ID: %d", reservationId), saved.getMessage());
+    }
+
+    @Test
+    public void unflushedEntriesAreReplayedTest() throws Exception {
+        final int roomId = roomRepository.save(Room.builder().build()).getId();
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+
+        final ReservationJournal crashed = journal(REPLAY_PATH);
+        crashed.start();
+        crashed.awaitDurable(crashed.append(roomId, USER_USER, tomorrow, tomorrow.plus(1, DAYS)));
+        crashed.awaitDurable(crashed.append(roomId, USER_USER, tomorrow.plus(2, DAYS), tomorrow.plus(3, DAYS)));
+        crashed.close();
+        assertEquals(0, reservationRepository.count());
+
+        final ReservationJournal restarted = journal(REPLAY_PATH);
+        restarted.start();
+        assertEquals(2, reservationRepository.count());
+        assertTrue(reservationIntervalIndex.findCollision(roomId, tomorrow.toEpochMilli(), tomorrow.plus(1, DAYS).toEpochMilli()).isPresent());
+        restarted.stop();
+
+        final ReservationJournal replayedAgain = journal(REPLAY_PATH);
+        replayedAgain.start();
+        assertEquals(2, reservationRepository.count());
+        replayedAgain.stop();
+    }
+
+    @Test
+    public void batchIsNotInsertedAgainWhenTheCheckpointFailsTest() throws Exception {
+        final int roomId = roomRepository.save(Room.builder().build()).getId();
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        final Path checkpoint = Paths.get(REPLAY_PATH + ".checkpoint");
+
+        final ReservationJournal journal = journal(REPLAY_PATH);
+        journal.start();
+        Files.delete(checkpoint);
+        final Path blocker = Files.createDirectories(checkpoint.resolve("blocker"));
+        journal.awaitDurable(journal.append(roomId, USER_USER, tomorrow, tomorrow.plus(1, DAYS)));
+        assertThrows(UncheckedIOException.class, journal::drain);
+        assertEquals(1, reservationRepository.count());
+
+        Files.delete(blocker);
+        Files.delete(checkpoint);
+        journal.drain();
+        assertEquals(1, reservationRepository.count());
+        assertTrue(Files.isRegularFile(checkpoint));
+        journal.stop();
+    }
+
+    private ReservationJournal journal(final String path) {
+        return new ReservationJournal(true, path, 1, 128, 3_600_000, 500, userRepository, roomRepository,
+                reservationRepository, transactionTemplate, reservationIntervalIndex, occupancyIndex, shardRouter,
+                occupancyAggregates, reservationFeed);
+    }
+}
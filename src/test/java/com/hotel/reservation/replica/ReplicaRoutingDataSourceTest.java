@@ -0,0 +1,80 @@
+package com.hotel.reservation.replica;
+
+import com.hotel.reservation.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY = "jdbc:h2:mem:primary";
+    private static final String REPLICA_1 = "jdbc:h2:mem:replica1";
+    private static final String REPLICA_2 = "jdbc:h2:mem:replica2";
+
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = new ReplicaRoutingDataSource(h2(PRIMARY), Arrays.asList(h2(REPLICA_1), h2(REPLICA_2)));
+    }
+
+    @Test
+    public void writesUseThePrimaryTest() {
+        assertEquals(PRIMARY, url());
+    }
+
+    @Test
+    public void readOnlyWorkRotatesOverTheReplicasTest() {
+        final Set<String> used = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            used.add(ReadContext.readOnly(this::url));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(REPLICA_1, REPLICA_2)), used);
+        assertEquals(PRIMARY, url());
+    }
+
+    @Test
+    public void readYourWritesKeepsReadsOnThePrimaryTest() {
+        ReadContext.readYourWrites(true);
+        try {
+            assertEquals(PRIMARY, ReadContext.readOnly(this::url));
+            final Supplier<String> propagated = ReadContext.propagate(() -> ReadContext.readOnly(this::url));
+            ReadContext.readYourWrites(false);
+            assertEquals(PRIMARY, propagated.get());
+        } finally {
+            ReadContext.readYourWrites(false);
+        }
+    }
+
+    @Test
+    public void otherShardsUseThePrimaryTest() {
+        final ShardRouter shardRouter = new ShardRouter(new String[]{"jdbc:h2:mem:shard1"}, "none", null, null);
+        try {
+            assertEquals(PRIMARY, shardRouter.on(1, () -> ReadContext.readOnly(this::url)));
+        } finally {
+            shardRouter.shutdown();
+        }
+    }
+
+    private String url() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource h2(final String url) {
+        return new DriverManagerDataSource(url, "sa", "");
+    }
+}
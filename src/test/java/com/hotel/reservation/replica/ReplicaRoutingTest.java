@@ -0,0 +1,68 @@
+package com.hotel.reservation.replica;
+
+import com.hotel.reservation.DateScalar;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The replica is the primary's own in-memory database under a second pool, so both see the same rows and the pool
+ * that served a request is told apart by its connection acquisitions.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replicated;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "hotel.replica.urls=jdbc:h2:mem:replicated;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+class ReplicaRoutingTest {
+
+    private static final String REPLICA = "replica-0";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void restReadsUseTheReplicaTest() throws Exception {
+        final long acquired = replicaAcquisitions();
+        occupancy(false);
+        assertTrue(replicaAcquisitions() > acquired);
+    }
+
+    @Test
+    public void readYourWritesKeepsRestReadsOnThePrimaryTest() throws Exception {
+        final long acquired = replicaAcquisitions();
+        occupancy(true);
+        assertEquals(acquired, replicaAcquisitions());
+    }
+
+    private void occupancy(final boolean readYourWrites) throws Exception {
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        mockMvc.perform(get("/occupancy")
+                        .header(ReadContext.READ_YOUR_WRITES_HEADER, readYourWrites)
+                        .param("fromDate", DateScalar.format(tomorrow))
+                        .param("toDate", DateScalar.format(tomorrow.plus(3, DAYS))))
+                .andExpect(status().isOk());
+    }
+
+    private long replicaAcquisitions() {
+        final Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", REPLICA).timer();
+        return acquire == null ? 0 : acquire.count();
+    }
+}
@@ -0,0 +1,97 @@
+package com.hotel.reservation.repository;
+
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.model.Reservation;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.services.AvailabilityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static java.time.temporal.ChronoUnit.HOURS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class RoomRepositoryTest {
+
+    private static final Instant START = Instant.parse("2030-03-01T14:00:00Z");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    private Room booked;
+    private Room free;
+    private Room adjacent;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+
+        final User user = userRepository.save(User.builder().login("user-USER").role(USER).build());
+        booked = roomRepository.save(Room.builder().build());
+        free = roomRepository.save(Room.builder().build());
+        adjacent = roomRepository.save(Room.builder().build());
+        reservationRepository.save(Reservation.builder().room(booked).user(user)
+                .startDate(START).endDate(START.plus(2, DAYS)).build());
+        reservationRepository.save(Reservation.builder().room(adjacent).user(user)
+                .startDate(START.plus(2, DAYS)).endDate(START.plus(3, DAYS)).build());
+    }
+
+    @Test
+    public void overlappingReservationsExcludeTheRoomTest() {
+        assertEquals(Arrays.asList(free.getId(), adjacent.getId()),
+                availableIds(START.plus(1, HOURS), START.plus(2, DAYS), 0, 10));
+        assertEquals(Arrays.asList(booked.getId(), free.getId()),
+                availableIds(START.plus(2, DAYS), START.plus(3, DAYS), 0, 10));
+        assertEquals(Arrays.asList(free.getId()),
+                availableIds(START.minus(1, DAYS), START.plus(4, DAYS), 0, 10));
+        assertEquals(3, roomRepository.countAvailable(START.minus(2, DAYS), START));
+        assertEquals(1, roomRepository.countAvailable(START.plus(1, DAYS), START.plus(2, DAYS).plus(1, HOURS)));
+    }
+
+    @Test
+    public void availableRoomsArePagedInIdOrderTest() {
+        final Instant from = START.minus(5, DAYS);
+        final Instant to = START.minus(4, DAYS);
+        assertEquals(Arrays.asList(booked.getId(), free.getId()), availableIds(from, to, 0, 2));
+        assertEquals(Arrays.asList(adjacent.getId()), availableIds(from, to, 1, 2));
+        assertEquals(Arrays.asList(), availableIds(from, to, 2, 2));
+    }
+
+    @Test
+    public void invalidPagesAreRejectedTest() {
+        assertThrows(ReservationException.class, () -> availabilityService.availableRoomIds(START, START.plus(1, DAYS), -1, 10));
+        assertThrows(ReservationException.class, () -> availabilityService.availableRoomIds(START, START.plus(1, DAYS), 0, 0));
+        assertThrows(ReservationException.class, () ->
+                availabilityService.availableRoomIds(START, START.plus(1, DAYS), AvailabilityService.MAX_PAGE + 1, 10));
+    }
+
+    private List<Integer> availableIds(final Instant fromDate, final Instant toDate, final int page, final int limit) {
+        return roomRepository.findAvailable(fromDate, toDate, PageRequest.of(page, limit, Sort.by("id"))).stream()
+                .map(Room::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,93 @@
+package com.hotel.reservation.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityCacheTest {
+
+    private static final Instant FROM = Instant.parse("2030-01-10T00:00:00Z");
+    private static final Instant TO = FROM.plus(2, DAYS);
+
+    private final CountingAvailabilityService availabilityService = new CountingAvailabilityService();
+    private final AvailabilityCache availabilityCache = new AvailabilityCache(availabilityService, 100, 60_000);
+
+    @Test
+    public void identicalConcurrentQueriesRunOnceTest() throws Exception {
+        availabilityService.release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                counts.add(callers.submit(() -> availabilityCache.countAvailable(FROM, TO)));
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+            availabilityService.release.countDown();
+            for (Future<Long> count : counts) {
+                assertEquals(1L, count.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, availabilityService.calls.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reservationInvalidatesOverlappingRangesTest() {
+        assertEquals(1L, availabilityCache.countAvailable(FROM, TO));
+        assertEquals(1L, availabilityCache.countAvailable(FROM, TO));
+
+        availabilityCache.invalidate(TO.plus(5, DAYS), TO.plus(6, DAYS));
+        assertEquals(1L, availabilityCache.countAvailable(FROM, TO));
+
+        availabilityCache.invalidate(TO.minus(1, DAYS), TO.plus(1, DAYS));
+        assertEquals(2L, availabilityCache.countAvailable(FROM, TO));
+        assertEquals(2, availabilityService.calls.get());
+    }
+
+    @Test
+    public void answerComputedDuringWriteIsNotCachedTest() throws Exception {
+        availabilityService.release = new CountDownLatch(1);
+        final ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Long> count = caller.submit(() -> availabilityCache.countAvailable(FROM, TO));
+            while (availabilityService.calls.get() == 0) {
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+            availabilityCache.invalidate(FROM, FROM.plus(1, DAYS));
+            availabilityService.release.countDown();
+            assertEquals(1L, count.get(5, TimeUnit.SECONDS));
+        } finally {
+            caller.shutdownNow();
+        }
+        assertEquals(2L, availabilityCache.countAvailable(FROM, TO));
+    }
+
+    private static class CountingAvailabilityService extends AvailabilityService {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        private CountingAvailabilityService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public long countAvailable(final Instant fromDate, final Instant toDate) {
+            final int call = calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return call;
+        }
+    }
+}
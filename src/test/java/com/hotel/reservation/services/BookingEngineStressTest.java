@@ -0,0 +1,118 @@
+package com.hotel.reservation.services;
+
+import com.hotel.reservation.exceptions.ReservationException;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.ReservationInterval;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BookingEngineStressTest {
+
+    private static final String USER_USER = "user-USER";
+    private static final int ROOMS = 4;
+    private static final int BOOKINGS_PER_THREAD = 50;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        userRepository.deleteAll();
+        roomRepository.deleteAll();
+
+        userRepository.save(User.builder().login(USER_USER).role(USER).build());
+    }
+
+    @Test
+    public void concurrentBookingsNeverOverlapTest() throws Exception {
+        for (int threads : THREAD_COUNTS) {
+            reservationRepository.deleteAll();
+            roomRepository.deleteAll();
+            final List<Integer> roomIds = new ArrayList<>();
+            for (int i = 0; i < ROOMS; i++) {
+                roomIds.add(roomRepository.save(Room.builder().build()).getId());
+            }
+
+            final Instant tomorrow = Instant.now().plus(1, DAYS);
+            final AtomicInteger accepted = new AtomicInteger();
+            final AtomicInteger rejected = new AtomicInteger();
+            final CountDownLatch start = new CountDownLatch(1);
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                        final Instant startDate = tomorrow.plus(random.nextInt(60), DAYS);
+                        try {
+                            hotelService.reserveRoom(USER_USER, roomIds.get(random.nextInt(ROOMS)),
+                                    startDate, startDate.plus(1 + random.nextInt(3), DAYS));
+                            accepted.incrementAndGet();
+                        } catch (ReservationException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            final long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            final double seconds = (System.nanoTime() - startNanos) / 1e9;
+            executor.shutdown();
+
+            final List<ReservationInterval> reservations = reservationRepository.findIntervalsEndingAfter(Instant.EPOCH);
+            assertEquals(accepted.get(), reservations.size());
+            assertNoDoubleBookings(reservations);
+
+            System.out.printf("threads=%d accepted=%d rejected=%d throughput=%.1f bookings/s%n",
+                    threads, accepted.get(), rejected.get(), (accepted.get() + rejected.get()) / seconds);
+        }
+    }
+
+    private static void assertNoDoubleBookings(final List<ReservationInterval> reservations) {
+        final Map<Integer, List<ReservationInterval>> byRoom = reservations.stream()
+                .collect(Collectors.groupingBy(ReservationInterval::getRoomId));
+        for (List<ReservationInterval> roomReservations : byRoom.values()) {
+            roomReservations.sort(Comparator.comparing(ReservationInterval::getStartDate));
+            for (int i = 1; i < roomReservations.size(); i++) {
+                final ReservationInterval previous = roomReservations.get(i - 1);
+                final ReservationInterval next = roomReservations.get(i);
+                assertFalse(next.getStartDate().isBefore(previous.getEndDate()),
+                        String.format("Reservation %d overlaps reservation %d", next.getId(), previous.getId()));
+            }
+        }
+    }
+}
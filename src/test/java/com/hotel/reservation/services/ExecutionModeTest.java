@@ -0,0 +1,48 @@
+package com.hotel.reservation.services;
+
+import com.hotel.reservation.exceptions.UserNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionModeTest {
+
+    @Test
+    public void blockingModeRunsOnCallerThreadTest() {
+        final ExecutionMode executionMode = new ExecutionMode(false, 1, 1);
+        final Thread caller = Thread.currentThread();
+
+        final CompletableFuture<Thread> result = executionMode.supply(Thread::currentThread);
+
+        assertTrue(result.isDone());
+        assertSame(caller, ExecutionMode.join(result));
+        executionMode.shutdown();
+    }
+
+    @Test
+    public void asyncModeRunsOnPoolTest() {
+        final ExecutionMode executionMode = new ExecutionMode(true, 1, 1);
+
+        final Thread worker = ExecutionMode.join(executionMode.supply(Thread::currentThread));
+
+        assertNotSame(Thread.currentThread(), worker);
+        assertTrue(worker.getName().startsWith("hotel-lookup-"));
+        executionMode.shutdown();
+    }
+
+    @Test
+    public void joinRethrowsLookupFailureTest() {
+        for (boolean async : new boolean[]{false, true}) {
+            final ExecutionMode executionMode = new ExecutionMode(async, 1, 1);
+
+            final CompletableFuture<Object> result = executionMode.supply(() -> {
+                throw new UserNotFoundException("User with login missing not found");
+            });
+
+            assertThrows(UserNotFoundException.class, () -> ExecutionMode.join(result));
+            executionMode.shutdown();
+        }
+    }
+}
@@ -1,21 +1,49 @@
 package com.hotel.reservation.services;
 
+import com.hotel.reservation.dto.IdRange;
+import com.hotel.reservation.dto.OccupancyNight;
+import com.hotel.reservation.dto.ReservationRequest;
+import com.hotel.reservation.dto.ReservationResult;
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.dto.RoomSpec;
 import com.hotel.reservation.exceptions.*;
+import com.hotel.reservation.feed.ReservationEvent;
+import com.hotel.reservation.feed.ReservationFeed;
+import com.hotel.reservation.model.NightOccupancy;
 import com.hotel.reservation.model.Room;
 import com.hotel.reservation.model.User;
+import com.hotel.reservation.repository.BackfillRepository;
+import com.hotel.reservation.repository.NightOccupancyRepository;
 import com.hotel.reservation.repository.ReservationRepository;
 import com.hotel.reservation.repository.RoomRepository;
 import com.hotel.reservation.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-
-import java.util.Date;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.hotel.reservation.Amenity.BALCONY;
+import static com.hotel.reservation.Amenity.WIFI;
 
 import static com.hotel.reservation.Role.ADMIN;
 import static com.hotel.reservation.Role.USER;
-import static org.apache.commons.lang.time.DateUtils.addDays;
+import static com.hotel.reservation.RoomType.DOUBLE;
+import static com.hotel.reservation.RoomType.SINGLE;
+import static java.time.temporal.ChronoUnit.DAYS;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -36,6 +64,21 @@ class HotelServiceTest {
     @Autowired
     private HotelService hotelService;
 
+    @Autowired
+    private NightOccupancyRepository nightOccupancyRepository;
+
+    @Autowired
+    private BackfillRepository backfillRepository;
+
+    @Autowired
+    private OccupancyAggregates occupancyAggregates;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ReservationFeed reservationFeed;
+
     @BeforeEach
     public void setUp() {
         reservationRepository.deleteAll();
@@ -55,6 +98,13 @@ class HotelServiceTest {
         assertThrows(UserAlreadyExistException.class, () -> hotelService.createUser("user", ADMIN));
     }
 
+    @Test
+    public void createUserInvalidatesRoleCacheTest() {
+        assertThrows(UserNotFoundException.class, () -> hotelService.addRoom("user-NEW"));
+        hotelService.createUser("user-NEW", ADMIN);
+        assertDoesNotThrow(() -> hotelService.addRoom("user-NEW"));
+    }
+
     @Test
     public void addRoomTest() {
         assertFalse(roomRepository.findAll().iterator().hasNext());
@@ -71,6 +121,22 @@ class HotelServiceTest {
         assertThrows(RoomNotFoundException.class, () -> hotelService.deleteRoom(USER_ADMIN, 0));
     }
 
+    @Test
+    public void deleteRoomPublishesCancellationsTest() {
+        final int roomId = hotelService.addRoom(USER_ADMIN);
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        hotelService.reserveRoom(USER_USER, roomId, tomorrow, tomorrow.plus(1, DAYS));
+        final Integer reservationId = reservationRepository.findAll().iterator().next().getId();
+        final long offset = reservationFeed.headOffset();
+
+        hotelService.deleteRoom(USER_ADMIN, roomId);
+
+        final List<ReservationEvent> events = reservationFeed.read(offset, 10);
+        assertEquals(1, events.size());
+        assertEquals(ReservationEvent.Type.CANCELLED, events.get(0).getType());
+        assertEquals(reservationId, events.get(0).getReservationId());
+    }
+
     @Test
     public void reserveRoomAdminTest() {
         final Room room = roomRepository.save(Room.builder().build());
@@ -79,40 +145,40 @@ class HotelServiceTest {
                 () -> hotelService.reserveRoomAdmin(USER_USER,
                         room.getId(),
                         USER_USER,
-                        addDays(new Date(), 1),
-                        addDays(new Date(), 2))
+                        Instant.now().plus(1, DAYS),
+                        Instant.now().plus(2, DAYS))
         );
 
         assertThrows(RoomNotFoundException.class,
                 () -> hotelService.reserveRoomAdmin(USER_ADMIN,
                         0,
                         USER_ADMIN,
-                        addDays(new Date(), 1),
-                        addDays(new Date(), 2))
+                        Instant.now().plus(1, DAYS),
+                        Instant.now().plus(2, DAYS))
         );
 
         assertThrows(ReservationException.class,
                 () -> hotelService.reserveRoomAdmin(USER_ADMIN,
                         room.getId(),
                         USER_ADMIN,
-                        addDays(new Date(), 3),
-                        addDays(new Date(), 2))
+                        Instant.now().plus(3, DAYS),
+                        Instant.now().plus(2, DAYS))
         );
 
         assertThrows(ReservationException.class,
                 () -> hotelService.reserveRoomAdmin(USER_ADMIN,
                         room.getId(),
                         USER_USER,
-                        addDays(new Date(), 3),
-                        new Date(0))
+                        Instant.now().plus(3, DAYS),
+                        Instant.EPOCH)
         );
 
         assertThrows(UserNotFoundException.class,
                 () -> hotelService.reserveRoomAdmin(USER_ADMIN,
                         room.getId(),
                         "user-UNKNOWN",
-                        addDays(new Date(), 1),
-                        addDays(new Date(), 3))
+                        Instant.now().plus(1, DAYS),
+                        Instant.now().plus(3, DAYS))
         );
 
         assertFalse(reservationRepository.findAll().iterator().hasNext());
@@ -120,8 +186,8 @@ class HotelServiceTest {
         assertDoesNotThrow(() -> hotelService.reserveRoomAdmin(USER_ADMIN,
                 room.getId(),
                 USER_USER,
-                addDays(new Date(), 1),
-                addDays(new Date(), 3))
+                Instant.now().plus(1, DAYS),
+                Instant.now().plus(3, DAYS))
         );
 
         assertTrue(reservationRepository.findAll().iterator().hasNext());
@@ -135,8 +201,8 @@ class HotelServiceTest {
 
         assertDoesNotThrow(() -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(new Date(), 1),
-                addDays(new Date(), 3))
+                Instant.now().plus(1, DAYS),
+                Instant.now().plus(3, DAYS))
         );
 
         assertTrue(reservationRepository.findAll().iterator().hasNext());
@@ -147,59 +213,114 @@ class HotelServiceTest {
         final Room room = roomRepository.save(Room.builder().build());
         final Room emptyRoom = roomRepository.save(Room.builder().build());
 
-        final Date staticDateTomorrow = addDays(new Date(), 1);
+        final Instant staticDateTomorrow = Instant.now().plus(1, DAYS);
         hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 2),
-                addDays(staticDateTomorrow, 10));
+                staticDateTomorrow.plus(2, DAYS),
+                staticDateTomorrow.plus(10, DAYS));
 
         assertDoesNotThrow(() -> hotelService.reserveRoom(USER_ADMIN,
                 emptyRoom.getId(),
-                addDays(staticDateTomorrow, 2),
-                addDays(staticDateTomorrow, 10))
+                staticDateTomorrow.plus(2, DAYS),
+                staticDateTomorrow.plus(10, DAYS))
         );
 
         assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 1),
-                addDays(staticDateTomorrow, 11))
+                staticDateTomorrow.plus(1, DAYS),
+                staticDateTomorrow.plus(11, DAYS))
         );
 
         assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 2),
-                addDays(staticDateTomorrow, 10))
+                staticDateTomorrow.plus(2, DAYS),
+                staticDateTomorrow.plus(10, DAYS))
         );
 
         assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 3),
-                addDays(staticDateTomorrow, 11))
+                staticDateTomorrow.plus(3, DAYS),
+                staticDateTomorrow.plus(11, DAYS))
         );
 
         assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 3),
-                addDays(staticDateTomorrow, 9))
+                staticDateTomorrow.plus(3, DAYS),
+                staticDateTomorrow.plus(9, DAYS))
         );
 
         assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 1),
-                addDays(staticDateTomorrow, 9))
+                staticDateTomorrow.plus(1, DAYS),
+                staticDateTomorrow.plus(9, DAYS))
         );
 
         assertDoesNotThrow(() -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 0),
-                addDays(staticDateTomorrow, 1))
+                staticDateTomorrow.plus(0, DAYS),
+                staticDateTomorrow.plus(1, DAYS))
         );
 
         assertDoesNotThrow(() -> hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(staticDateTomorrow, 11),
-                addDays(staticDateTomorrow, 12))
+                staticDateTomorrow.plus(11, DAYS),
+                staticDateTomorrow.plus(12, DAYS))
+        );
+    }
+
+    @Test
+    public void reserveRoomsTest() {
+        final Room room = roomRepository.save(Room.builder().build());
+        final Instant staticDateTomorrow = Instant.now().plus(1, DAYS);
+        hotelService.reserveRoom(USER_USER, room.getId(), staticDateTomorrow, staticDateTomorrow.plus(2, DAYS));
+        final int existingReservationId = reservationRepository.findAll().iterator().next().getId();
+
+        final List<ReservationRequest> requests = Arrays.asList(
+                new ReservationRequest(room.getId(), USER_USER, staticDateTomorrow.plus(3, DAYS), staticDateTomorrow.plus(5, DAYS)),
+                new ReservationRequest(room.getId(), USER_ADMIN, staticDateTomorrow.plus(4, DAYS), staticDateTomorrow.plus(6, DAYS)),
+                new ReservationRequest(room.getId(), USER_ADMIN, staticDateTomorrow.plus(1, DAYS), staticDateTomorrow.plus(3, DAYS)),
+                new ReservationRequest(room.getId(), "user-UNKNOWN", staticDateTomorrow.plus(7, DAYS), staticDateTomorrow.plus(8, DAYS)),
+                new ReservationRequest(0, USER_USER, staticDateTomorrow.plus(7, DAYS), staticDateTomorrow.plus(8, DAYS)),
+                new ReservationRequest(room.getId(), USER_USER, staticDateTomorrow.plus(9, DAYS), staticDateTomorrow.plus(8, DAYS)),
+                new ReservationRequest(room.getId(), USER_ADMIN, staticDateTomorrow.plus(5, DAYS), staticDateTomorrow.plus(7, DAYS)));
+
+        assertThrows(UserNotPermittedToPerformThisOperationException.class, () -> hotelService.reserveRooms(USER_USER, requests));
+
+        final List<ReservationResult> results = hotelService.reserveRooms(USER_ADMIN, requests);
+
+        assertEquals(requests.size(), results.size());
+        assertNotNull(results.get(0).getReservationId());
+        assertEquals("This reservation collides with reservation at index 0 of the batch", results.get(1).getError());
+        assertEquals(String.format("This reservation collides with reservation with ID: %d", existingReservationId), results.get(2).getError());
+        assertEquals("Reservation user with login user-UNKNOWN not found", results.get(3).getError());
+        assertEquals("Room with ID: 0 not found", results.get(4).getError());
+        assertEquals("Start date of reservation cannot be after end date", results.get(5).getError());
+        assertNotNull(results.get(6).getReservationId());
+        assertEquals(3, reservationRepository.count());
+
+        assertThrows(ReservationException.class, () -> hotelService.reserveRoom(USER_USER,
+                room.getId(),
+                staticDateTomorrow.plus(6, DAYS),
+                staticDateTomorrow.plus(7, DAYS))
+        );
+    }
+
+    @Test
+    public void bookingOutcomeMetricsTest() {
+        final Room room = roomRepository.save(Room.builder().build());
+        final Instant staticDateTomorrow = Instant.now().plus(1, DAYS);
+        final double successes = bookings(HotelMetrics.SUCCESS);
+        final double collisions = bookings(HotelMetrics.COLLISION);
+
+        hotelService.reserveRoom(USER_USER, room.getId(), staticDateTomorrow, staticDateTomorrow.plus(2, DAYS));
+        assertThrows(ReservationCollisionException.class, () -> hotelService.reserveRoom(USER_USER,
+                room.getId(),
+                staticDateTomorrow.plus(1, DAYS),
+                staticDateTomorrow.plus(3, DAYS))
         );
+
+        assertEquals(successes + 1, bookings(HotelMetrics.SUCCESS));
+        assertEquals(collisions + 1, bookings(HotelMetrics.COLLISION));
     }
 
     @Test
@@ -208,8 +329,8 @@ class HotelServiceTest {
 
         hotelService.reserveRoom(USER_ADMIN,
                 room.getId(),
-                addDays(new Date(), 2),
-                addDays(new Date(), 10));
+                Instant.now().plus(2, DAYS),
+                Instant.now().plus(10, DAYS));
 
         final int reservationId = reservationRepository.findAll().iterator().next().getId();
 
@@ -221,4 +342,138 @@ class HotelServiceTest {
 
         assertFalse(reservationRepository.findAll().iterator().hasNext());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchRoomsTest() {
+        final int cheap = hotelService.addRoom(USER_ADMIN, RoomSpec.builder().type(DOUBLE).capacity(2).floor(1)
+                .pricePerNight(new BigDecimal("80.00")).amenities(EnumSet.of(WIFI)).build());
+        final int expensive = hotelService.addRoom(USER_ADMIN, RoomSpec.builder().type(DOUBLE).capacity(3).floor(2)
+                .pricePerNight(new BigDecimal("150.00")).amenities(EnumSet.of(WIFI, BALCONY)).build());
+        final int booked = hotelService.addRoom(USER_ADMIN, RoomSpec.builder().type(DOUBLE).capacity(2).floor(2)
+                .pricePerNight(new BigDecimal("100.00")).amenities(EnumSet.of(WIFI, BALCONY)).build());
+        hotelService.addRoom(USER_ADMIN, RoomSpec.builder().type(SINGLE).capacity(1).floor(1)
+                .pricePerNight(new BigDecimal("50.00")).build());
+        final Instant from = Instant.now().plus(2, DAYS);
+        hotelService.reserveRoom(USER_USER, booked, from, from.plus(2, DAYS));
+
+        assertEquals(Arrays.asList(expensive, booked, cheap),
+                ids(hotelService.searchRooms(RoomSearch.builder().type(DOUBLE).build(), Sort.Direction.DESC, 0, 10)));
+        assertEquals(Arrays.asList(expensive, booked),
+                ids(hotelService.searchRooms(RoomSearch.builder().amenities(EnumSet.of(WIFI, BALCONY)).build(), Sort.Direction.DESC, 0, 10)));
+        assertEquals(Collections.singletonList(expensive),
+                ids(hotelService.searchRooms(RoomSearch.builder().amenities(EnumSet.of(BALCONY))
+                        .fromDate(from).toDate(from.plus(1, DAYS)).build(), null, 0, 10)));
+        assertEquals(Arrays.asList(cheap, booked),
+                ids(hotelService.searchRooms(RoomSearch.builder().minCapacity(2).maxPrice(new BigDecimal("120")).build(),
+                        Sort.Direction.ASC, 0, 10)));
+        assertEquals(Collections.singletonList(booked),
+                ids(hotelService.searchRooms(RoomSearch.builder().type(DOUBLE).build(), Sort.Direction.ASC, 1, 1)));
+    }
+
+    private static List<Integer> ids(final List<Room> rooms) {
+        return rooms.stream().map(Room::getId).collect(Collectors.toList());
+    }
+
+    private double bookings(final String outcome) {
+        final Counter counter = meterRegistry.find("hotel.bookings").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    public void addRoomsTest() {
+        assertThrows(UserNotPermittedToPerformThisOperationException.class, () -> hotelService.addRooms(USER_USER, 3));
+        assertThrows(ReservationException.class, () -> hotelService.addRooms(USER_ADMIN, HotelService.MAX_BULK_ROOMS + 1));
+
+        final List<IdRange> ranges = hotelService.addRooms(USER_ADMIN, 120);
+        final List<Integer> roomIds = roomRepository.findAllIds();
+        assertEquals(120, roomIds.size());
+        assertEquals(roomIds, ranges.stream()
+                .flatMap(range -> IntStream.rangeClosed(range.getFrom(), range.getTo()).boxed())
+                .collect(Collectors.toList()));
+
+        final List<IdRange> specified = hotelService.addRooms(USER_ADMIN, Arrays.asList(
+                RoomSpec.builder().type(SINGLE).amenities(EnumSet.of(WIFI)).build(),
+                RoomSpec.builder().type(DOUBLE).build()));
+        assertEquals(2, specified.stream().mapToInt(range -> range.getTo() - range.getFrom() + 1).sum());
+        assertEquals(SINGLE, roomRepository.findById(specified.get(0).getFrom()).get().getType());
+    }
+
+    @Test
+    public void deleteRoomsTest() {
+        final List<Integer> roomIds = Arrays.asList(
+                hotelService.addRoom(USER_ADMIN, RoomSpec.builder().amenities(EnumSet.of(WIFI, BALCONY)).build()),
+                hotelService.addRoom(USER_ADMIN),
+                hotelService.addRoom(USER_ADMIN));
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        hotelService.reserveRoom(USER_USER, roomIds.get(0), tomorrow, tomorrow.plus(1, DAYS));
+        hotelService.reserveRoom(USER_USER, roomIds.get(1), tomorrow, tomorrow.plus(2, DAYS));
+
+        assertThrows(UserNotPermittedToPerformThisOperationException.class,
+                () -> hotelService.deleteRooms(USER_USER, roomIds.subList(0, 2)));
+        assertEquals(2, hotelService.deleteRooms(USER_ADMIN, Arrays.asList(roomIds.get(0), roomIds.get(1), 0)));
+
+        assertEquals(Collections.singletonList(roomIds.get(2)), roomRepository.findAllIds());
+        assertEquals(0, reservationRepository.count());
+        assertTrue(roomRepository.findAmenities(roomIds).isEmpty());
+    }
+
+    @Test
+    public void occupancyTest() {
+        nightOccupancyRepository.deleteAll();
+        final int first = hotelService.addRoom(USER_ADMIN);
+        final int second = hotelService.addRoom(USER_ADMIN);
+        final LocalDate arrival = LocalDate.now().plusDays(10);
+        hotelService.reserveRoom(USER_USER, first, noon(arrival), noon(arrival.plusDays(3)));
+        hotelService.reserveRoom(USER_USER, second, noon(arrival.plusDays(1)), noon(arrival.plusDays(2)));
+        hotelService.reserveRooms(USER_ADMIN, Collections.singletonList(
+                new ReservationRequest(second, USER_USER, noon(arrival.plusDays(2)), noon(arrival.plusDays(4)))));
+
+        final List<OccupancyNight> report = hotelService.occupancy(noon(arrival.minusDays(1)), noon(arrival.plusDays(6)));
+        assertEquals(Arrays.asList(
+                new OccupancyNight(arrival.minusDays(1), 0, 2, 0, 0),
+                new OccupancyNight(arrival, 1, 1, 1, 0),
+                new OccupancyNight(arrival.plusDays(1), 2, 0, 1, 0),
+                new OccupancyNight(arrival.plusDays(2), 2, 0, 1, 1),
+                new OccupancyNight(arrival.plusDays(3), 1, 1, 0, 1),
+                new OccupancyNight(arrival.plusDays(4), 0, 2, 0, 1),
+                new OccupancyNight(arrival.plusDays(5), 0, 2, 0, 0)), report);
+
+        final int cancelled = reservationRepository.findByRoomIdIn(Collections.singleton(first)).get(0).getId();
+        hotelService.deleteReservation(USER_ADMIN, cancelled);
+        final OccupancyNight firstNight = hotelService.occupancy(noon(arrival), noon(arrival.plusDays(1))).get(0);
+        assertEquals(new OccupancyNight(arrival, 0, 2, 0, 0), firstNight);
+
+        hotelService.deleteRoom(USER_ADMIN, second);
+        final OccupancyNight thirdNight = hotelService.occupancy(noon(arrival.plusDays(2)), noon(arrival.plusDays(3))).get(0);
+        assertEquals(new OccupancyNight(arrival.plusDays(2), 0, 1, 0, 0), thirdNight);
+    }
+
+    @Test
+    public void occupancyBackfillTest() {
+        final int room = hotelService.addRoom(USER_ADMIN);
+        final LocalDate arrival = LocalDate.now().plusDays(10);
+        hotelService.reserveRoom(USER_USER, room, noon(arrival), noon(arrival.plusDays(2)));
+        nightOccupancyRepository.deleteAll();
+        nightOccupancyRepository.save(new NightOccupancy(arrival.plusDays(1), 7, 0, 0));
+        nightOccupancyRepository.save(new NightOccupancy(arrival.plusDays(5), 3, 1, 0));
+        backfillRepository.deleteAll();
+
+        occupancyAggregates.backfill();
+        final List<OccupancyNight> report = hotelService.occupancy(noon(arrival), noon(arrival.plusDays(6)));
+        assertEquals(Arrays.asList(
+                new OccupancyNight(arrival, 1, 0, 1, 0),
+                new OccupancyNight(arrival.plusDays(1), 1, 0, 0, 0),
+                new OccupancyNight(arrival.plusDays(2), 0, 1, 0, 1),
+                new OccupancyNight(arrival.plusDays(3), 0, 1, 0, 0),
+                new OccupancyNight(arrival.plusDays(4), 0, 1, 0, 0),
+                new OccupancyNight(arrival.plusDays(5), 0, 1, 0, 0)), report);
+
+        nightOccupancyRepository.save(new NightOccupancy(arrival.plusDays(5), 3, 1, 0));
+        occupancyAggregates.backfill();
+        assertEquals(3, nightOccupancyRepository.findById(arrival.plusDays(5)).get().getBooked());
+    }
+
+    private static Instant noon(final LocalDate day) {
+        return day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
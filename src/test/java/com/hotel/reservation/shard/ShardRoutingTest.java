@@ -0,0 +1,168 @@
+package com.hotel.reservation.shard;
+
+import com.hotel.reservation.DateScalar;
+import com.hotel.reservation.dto.RoomSearch;
+import com.hotel.reservation.dto.RoomSpec;
+import com.hotel.reservation.index.OccupancyIndex;
+import com.hotel.reservation.index.ReservationIntervalIndex;
+import com.hotel.reservation.model.Room;
+import com.hotel.reservation.repository.ReservationRepository;
+import com.hotel.reservation.repository.RoomRepository;
+import com.hotel.reservation.repository.UserRepository;
+import com.hotel.reservation.services.AvailabilityCache;
+import com.hotel.reservation.services.HotelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.hotel.reservation.Role.ADMIN;
+import static com.hotel.reservation.Role.USER;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "hotel.sharding.urls=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;MODE=MySQL,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;MODE=MySQL",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.globally_quoted_identifiers=true"})
+class ShardRoutingTest {
+
+    private static final String USER_ADMIN = "user-ADMIN";
+    private static final String USER_USER = "user-USER";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private HotelService hotelService;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ReservationIntervalIndex reservationIntervalIndex;
+
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
+    @BeforeEach
+    public void setUp() {
+        shardRouter.fanOut(shard -> {
+            reservationRepository.deleteAll();
+            userRepository.deleteAll();
+            roomRepository.deleteAll();
+            return null;
+        });
+        reservationIntervalIndex.rebuild();
+        occupancyIndex.rebuild();
+        availabilityCache.invalidateAll();
+        hotelService.createUser(USER_ADMIN, ADMIN);
+        hotelService.createUser(USER_USER, USER);
+    }
+
+    @Test
+    public void usersAreReplicatedToEveryShardTest() {
+        final Integer userId = userRepository.findByLogin(USER_USER).get().getId();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            assertEquals(userId, shardRouter.on(shard, () -> userRepository.findByLogin(USER_USER).get().getId()));
+        }
+    }
+
+    @Test
+    public void roomsAndReservationsLiveOnTheirHotelsShardTest() {
+        assertEquals(3, shardRouter.shardCount());
+        final List<Integer> roomIds = Arrays.asList(addRoom(0, 100), addRoom(1, 200), addRoom(2, 300));
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+
+        for (int hotelId = 0; hotelId < roomIds.size(); hotelId++) {
+            final int roomId = roomIds.get(hotelId);
+            final int shard = shardRouter.shardOfHotel(hotelId);
+            assertEquals(shard, shardRouter.shardOf(roomId));
+            assertEquals(1, shardRouter.on(shard, roomRepository::count));
+            hotelService.reserveRoom(USER_USER, roomId, tomorrow, tomorrow.plus(1, DAYS));
+            assertEquals(1, shardRouter.on(shard, reservationRepository::count));
+        }
+        assertEquals(0, hotelService.countAvailableRooms(tomorrow, tomorrow.plus(1, DAYS)));
+        assertEquals(3, hotelService.countAvailableRooms(tomorrow.plus(2, DAYS), tomorrow.plus(3, DAYS)));
+        assertEquals(roomIds, hotelService.availableRoomIds(tomorrow.plus(2, DAYS), tomorrow.plus(3, DAYS), 0, 10));
+    }
+
+    @Test
+    public void searchAcrossHotelsMergesTheShardsTest() {
+        final int expensive = addRoom(0, 300);
+        final int cheap = addRoom(1, 100);
+        final int middle = addRoom(2, 200);
+
+        final List<Integer> all = hotelService.searchRooms(new RoomSearch(), Sort.Direction.ASC, 0, 10).stream()
+                .map(Room::getId)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(cheap, middle, expensive), all);
+
+        final List<Integer> secondPage = hotelService.searchRooms(new RoomSearch(), Sort.Direction.ASC, 1, 2).stream()
+                .map(Room::getId)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(expensive), secondPage);
+
+        final List<Integer> oneHotel = hotelService.searchRooms(RoomSearch.builder().hotelId(1).build(), null, 0, 10)
+                .stream()
+                .map(Room::getId)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(cheap), oneHotel);
+    }
+
+    @Test
+    public void restRequestsWriteToTheRoomsShardTest() throws Exception {
+        final int shard = shardRouter.shardOfHotel(1);
+        assertNotEquals(0, shard);
+        final String roomId = mockMvc.perform(post("/addRoom")
+                        .param("login", USER_ADMIN)
+                        .param("hotelId", "1"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertEquals(shard, shardRouter.shardOf(Integer.parseInt(roomId)));
+        assertTrue(shardRouter.on(shard, () -> roomRepository.existsById(Integer.parseInt(roomId))));
+        assertEquals(0, shardRouter.on(0, roomRepository::count));
+
+        final Instant tomorrow = Instant.now().plus(1, DAYS);
+        mockMvc.perform(post("/reserveRoomAdmin")
+                        .param("login", USER_ADMIN)
+                        .param("roomId", roomId)
+                        .param("reservationLogin", USER_USER)
+                        .param("startDate", DateScalar.format(tomorrow))
+                        .param("endDate", DateScalar.format(tomorrow.plus(1, DAYS))))
+                .andExpect(status().isOk());
+        assertEquals(1, shardRouter.on(shard, reservationRepository::count));
+        assertEquals(0, shardRouter.on(0, reservationRepository::count));
+    }
+
+    private int addRoom(final int hotelId, final int price) {
+        return hotelService.addRoom(USER_ADMIN, RoomSpec.builder().hotelId(hotelId)
+                .pricePerNight(BigDecimal.valueOf(price)).build());
+    }
+}